@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.benchmark;
+
+import com.hw.security.flink.function.MaskFunction;
+import com.hw.security.flink.function.MaskHashFunction;
+import com.hw.security.flink.function.MaskShowLastNFunction;
+
+import org.apache.flink.table.data.StringData;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFMask;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFMaskHash;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFMaskShowLastN;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the native mask functions against the Hive functions of the same names, on the internal strings that
+ * the Flink runtime passes to a function. The Hive path includes the conversions between the internal strings and the
+ * Java strings, which is what the Hive module does for every row.
+ *
+ * <pre>
+ * $ java -jar target/benchmarks.jar MaskFunctionBenchmark -prof gc
+ * </pre>
+ *
+ * @author: HamaWhite
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaskFunctionBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private final StringData[] values = new StringData[ROWS];
+
+    private final MaskFunction mask = new MaskFunction();
+    private final MaskShowLastNFunction maskShowLastN = new MaskShowLastNFunction();
+    private final MaskHashFunction maskHash = new MaskHashFunction();
+
+    private final GenericUDF hiveMask = new GenericUDFMask();
+    private final GenericUDF hiveMaskShowLastN = new GenericUDFMaskShowLastN();
+    private final GenericUDF hiveMaskHash = new GenericUDFMaskHash();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Random random = new Random(0);
+        for (int index = 0; index < ROWS; index++) {
+            // names mixed with phone numbers, 10% of which are not ASCII
+            String value = index % 10 == 0
+                    ? "\u5f20\u4e09\u4e30-" + random.nextInt(1000)
+                    : "Customer " + (13_900_000_000L + random.nextInt(100_000_000));
+            values[index] = StringData.fromString(value);
+        }
+        maskHash.open(null);
+
+        ObjectInspector stringInspector = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+        hiveMask.initialize(new ObjectInspector[]{stringInspector});
+        hiveMaskShowLastN.initialize(new ObjectInspector[]{stringInspector,
+                PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                        TypeInfoFactory.intTypeInfo, new IntWritable(4))});
+        hiveMaskHash.initialize(new ObjectInspector[]{stringInspector});
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void nativeMask(Blackhole blackhole) {
+        for (StringData value : values) {
+            blackhole.consume(mask.eval(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void hiveMask(Blackhole blackhole) throws HiveException {
+        for (StringData value : values) {
+            blackhole.consume(evaluate(hiveMask, value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void nativeMaskShowLastN(Blackhole blackhole) {
+        for (StringData value : values) {
+            blackhole.consume(maskShowLastN.eval(value, 4));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void hiveMaskShowLastN(Blackhole blackhole) throws HiveException {
+        for (StringData value : values) {
+            blackhole.consume(evaluate(hiveMaskShowLastN, value, 4));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void nativeMaskHash(Blackhole blackhole) throws Exception {
+        for (StringData value : values) {
+            blackhole.consume(maskHash.eval(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void hiveMaskHash(Blackhole blackhole) throws HiveException {
+        for (StringData value : values) {
+            blackhole.consume(evaluate(hiveMaskHash, value));
+        }
+    }
+
+    private static StringData evaluate(GenericUDF function, StringData value, Object... args) throws HiveException {
+        DeferredObject[] arguments = new DeferredObject[args.length + 1];
+        arguments[0] = new DeferredJavaObject(value.toString());
+        for (int index = 0; index < args.length; index++) {
+            arguments[index + 1] = new DeferredJavaObject(args[index]);
+        }
+        return StringData.fromString(String.valueOf(function.evaluate(arguments)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MaskFunctionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.benchmark;
+
+/**
+ * The implementations of the masking transformers that are compared end to end.
+ *
+ * @author: HamaWhite
+ */
+public enum MaskImplementation {
+
+    /**
+     * The mask functions of the Hive module
+     */
+    HIVE_FUNCTION,
+
+    /**
+     * The native mask functions that work on the internal strings
+     */
+    NATIVE_FUNCTION,
+
+    /**
+     * The native transformers built from the built-in functions, compiled into the generated projection
+     */
+    NATIVE_TRANSFORMER
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.benchmark;
+
+import com.hw.security.flink.PolicyManager;
+import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.config.SecurityOptions;
+import com.hw.security.flink.policy.DataMaskPolicy;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.catalog.GenericInMemoryCatalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark of the masking transformers, each invocation runs a job that masks four string columns of a
+ * bounded source with one million rows and writes them to a blackhole sink. The throughput in rows per second is one
+ * million divided by the reported time.
+ *
+ * <pre>
+ * $ java -jar target/benchmarks.jar MaskThroughputBenchmark
+ * </pre>
+ *
+ * @author: HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MaskThroughputBenchmark {
+
+    private static final String CATALOG_NAME = "memory";
+    private static final String DATABASE = "default";
+    private static final String USERNAME = "user_A";
+
+    private static final long ROWS = 1_000_000L;
+
+    @Param
+    private MaskImplementation implementation;
+
+    private SecurityContext securityContext;
+
+    private String sql;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Configuration configuration = new Configuration();
+        configuration.set(SecurityOptions.MASK_FUNCTIONS_NATIVE, implementation != MaskImplementation.HIVE_FUNCTION);
+        configuration.set(SecurityOptions.DATA_MASK_NATIVE_TRANSFORMER,
+                implementation == MaskImplementation.NATIVE_TRANSFORMER);
+
+        PolicyManager policyManager = new PolicyManager();
+        securityContext = new SecurityContext(policyManager, configuration);
+        securityContext.useCatalog(new GenericInMemoryCatalog(CATALOG_NAME, DATABASE));
+        securityContext.execute("LOAD MODULE hive WITH ('hive-version' = '3.1.2')");
+
+        securityContext.execute("CREATE TABLE customers (" +
+                "       id                  BIGINT                       ," +
+                "       name                STRING                       ," +
+                "       phone               STRING                       ," +
+                "       email               STRING                       ," +
+                "       address             STRING                        " +
+                ") WITH (" +
+                "       'connector' = 'datagen'," +
+                "       'number-of-rows' = '" + ROWS + "'," +
+                // the source is throttled to 10000 rows per second by default
+                "       'rows-per-second' = '" + Integer.MAX_VALUE + "'," +
+                "       'fields.name.length' = '16'," +
+                "       'fields.phone.length' = '11'," +
+                "       'fields.email.length' = '24'," +
+                "       'fields.address.length' = '32'" +
+                ")");
+        securityContext.execute("CREATE TABLE blackhole_sink (" +
+                "       id                  BIGINT                       ," +
+                "       name                STRING                       ," +
+                "       phone               STRING                       ," +
+                "       email               STRING                       ," +
+                "       address             STRING                        " +
+                ") WITH ('connector' = 'blackhole')");
+
+        policyManager.addPolicy(dataMaskPolicy("name", "MASK"));
+        policyManager.addPolicy(dataMaskPolicy("phone", "MASK_SHOW_LAST_4"));
+        policyManager.addPolicy(dataMaskPolicy("email", "MASK_SHOW_FIRST_4"));
+        policyManager.addPolicy(dataMaskPolicy("address", "MASK_HASH"));
+
+        sql = securityContext.rewriteDataMask(USERNAME,
+                "INSERT INTO blackhole_sink SELECT id, name, phone, email, address FROM customers");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        securityContext.close();
+    }
+
+    /**
+     * The insert returns when the job is finished
+     */
+    @Benchmark
+    public Object maskOneMillionRows() {
+        return securityContext.execute(sql);
+    }
+
+    private DataMaskPolicy dataMaskPolicy(String columnName, String condition) {
+        return new DataMaskPolicy(USERNAME, CATALOG_NAME, DATABASE, "customers", columnName, condition);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MaskThroughputBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.hw.security.flink.PolicyManager;
+import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.cache.DataMaskTemplateCache;
+import com.hw.security.flink.config.SecurityOptions;
+import com.hw.security.flink.model.ColumnEntity;
+import com.hw.security.flink.model.TableEntity;
+import com.hw.security.flink.visitor.TableRefVisitor;
+
+import org.apache.calcite.sql.SqlDataTypeSpec;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.SqlSelect;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.parser.SqlParserPos;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.catalog.GenericInMemoryCatalog;
+import org.apache.flink.table.catalog.ObjectIdentifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.hw.security.flink.benchmark.RewriteBenchmark.CATALOG_NAME;
+import static com.hw.security.flink.benchmark.RewriteBenchmark.DATABASE;
+import static com.hw.security.flink.benchmark.RewriteBenchmark.USERNAME;
+
+/**
+ * Benchmark of building the masking sub-queries of the masked table references of each query shape, by formatting the
+ * sub-query as text and parsing it again as the DataMaskVisitor used to, against building the SqlNode from the cached
+ * transformer and column type templates as it does now.
+ *
+ * <p>Both build the sub-query for the same tables, policies and columns. Every column of a masked table is read, as
+ * the text path did, so that only the way of building the sub-query differs.
+ *
+ * <pre>
+ * $ java -jar target/benchmarks.jar MaskingSubQueryBenchmark -prof gc
+ * </pre>
+ *
+ * @author: HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaskingSubQueryBenchmark {
+
+    @Param
+    private QueryShape queryShape;
+
+    private SecurityContext securityContext;
+
+    private PolicyManager policyManager;
+
+    /**
+     * The masked table references of the query shape, a table is listed once per reference of it
+     */
+    private final List<TableEntity> maskedTableList = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Configuration configuration = new Configuration();
+        configuration.set(SecurityOptions.REWRITE_ONLY, true);
+
+        policyManager = new PolicyManager();
+        securityContext = new SecurityContext(policyManager, configuration);
+        securityContext.useCatalog(new GenericInMemoryCatalog(CATALOG_NAME, DATABASE));
+        RewriteBenchmark.createTables(securityContext);
+        RewriteBenchmark.addPolicies(policyManager);
+
+        TableRefVisitor visitor = new TableRefVisitor();
+        // a query in parentheses is an expression
+        securityContext.parseExpression("(" + queryShape.getSql() + ")").accept(visitor);
+        for (List<String> tableNames : visitor.getTableNamesList()) {
+            ObjectIdentifier identifier = ObjectIdentifier.of(CATALOG_NAME, DATABASE, tableNames.get(0));
+            if (!getDataMaskConditions(identifier).isEmpty()) {
+                maskedTableList.add(securityContext.getTable(identifier));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        securityContext.close();
+    }
+
+    @Benchmark
+    public void reparseText(Blackhole blackhole) {
+        for (TableEntity table : maskedTableList) {
+            blackhole.consume(securityContext.parseExpression(buildReplaceText(table)));
+        }
+    }
+
+    @Benchmark
+    public void buildSqlNode(Blackhole blackhole) {
+        for (TableEntity table : maskedTableList) {
+            blackhole.consume(buildMaskingSelect(table));
+        }
+    }
+
+    /**
+     * (SELECT CAST(transformer AS col_type) AS col_name, ... FROM catalog.database.table), the old text path
+     */
+    private String buildReplaceText(TableEntity table) {
+        Map<String, String> conditionMap = getDataMaskConditions(table.getTableIdentifier());
+        StringBuilder sb = new StringBuilder();
+        sb.append("(SELECT ");
+        boolean firstOne = true;
+        for (ColumnEntity column : table.getColumnList()) {
+            if (!firstOne) {
+                sb.append(", ");
+            } else {
+                firstOne = false;
+            }
+            String condition = conditionMap.get(column.getColumnName());
+            if (condition != null) {
+                String transformer = policyManager.getDataMaskType(condition).getTransformer()
+                        .replace("{col}", column.getColumnName());
+                sb.append(String.format("CAST( %s AS %s) AS %s", transformer, column.getColumnType(),
+                        column.getColumnName()));
+            } else {
+                sb.append(column.getColumnName());
+            }
+        }
+        sb.append(" FROM ");
+        sb.append(table.getTableIdentifier().asSerializableString());
+        sb.append(")");
+        return sb.toString();
+    }
+
+    /**
+     * SELECT CAST(transformer AS col_type) AS col_name, ... FROM catalog.database.table, the SqlNode path of the
+     * DataMaskVisitor
+     */
+    private SqlSelect buildMaskingSelect(TableEntity table) {
+        Map<String, String> conditionMap = getDataMaskConditions(table.getTableIdentifier());
+        DataMaskTemplateCache templateCache = securityContext.getDataMaskTemplateCache();
+        SqlNodeList selectList = new SqlNodeList(SqlParserPos.ZERO);
+        for (ColumnEntity column : table.getColumnList()) {
+            SqlIdentifier columnIdentifier = new SqlIdentifier(column.getColumnName(), SqlParserPos.ZERO);
+            String condition = conditionMap.get(column.getColumnName());
+            if (condition != null) {
+                SqlNode transformer = templateCache.getTransformer(
+                        policyManager.getDataMaskType(condition).getTransformer(), column.getColumnName(),
+                        securityContext::parseExpression);
+                SqlDataTypeSpec dataTypeSpec =
+                        templateCache.getDataTypeSpec(column.getColumnType(), securityContext::parseExpression);
+                SqlNode cast = SqlStdOperatorTable.CAST.createCall(SqlParserPos.ZERO, transformer, dataTypeSpec);
+                selectList.add(SqlStdOperatorTable.AS.createCall(SqlParserPos.ZERO, cast, columnIdentifier));
+            } else {
+                selectList.add(columnIdentifier);
+            }
+        }
+        ObjectIdentifier identifier = table.getTableIdentifier();
+        SqlIdentifier from = new SqlIdentifier(ImmutableList.of(identifier.getCatalogName(),
+                identifier.getDatabaseName(), identifier.getObjectName()), SqlParserPos.ZERO);
+        return new SqlSelect(SqlParserPos.ZERO, SqlNodeList.EMPTY, selectList, from, null, null, null,
+                SqlNodeList.EMPTY, null, null, null, SqlNodeList.EMPTY);
+    }
+
+    private Map<String, String> getDataMaskConditions(ObjectIdentifier identifier) {
+        return policyManager.getSnapshot().getDataMaskConditions(USERNAME, identifier);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MaskingSubQueryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.benchmark;
+
+import com.hw.security.flink.PolicyManager;
+import com.hw.security.flink.policy.DataMaskPolicy;
+import com.hw.security.flink.policy.RowFilterPolicy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the policy lookups of PolicyManager, which indexes the policies by user, table and column, against the
+ * linear scan of a LinkedList of policies that it used to do.
+ *
+ * <p>The policies are spread over 100 users, each with a row-level filter and a masked column on its own tables, and
+ * every invocation looks up the policy of a random user and table.
+ *
+ * <pre>
+ * $ java -jar target/benchmarks.jar PolicyLookupBenchmark
+ * </pre>
+ *
+ * @author: HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolicyLookupBenchmark {
+
+    private static final String CATALOG_NAME = "hive";
+    private static final String DATABASE = "default";
+    private static final String COLUMN_NAME = "name";
+
+    private static final int USERS = 100;
+    private static final int LOOKUPS = 1024;
+
+    /**
+     * The number of row-level filter policies, there are as many data mask policies
+     */
+    @Param({"1000", "100000"})
+    private int policyCount;
+
+    private PolicyManager policyManager;
+
+    private final List<RowFilterPolicy> rowFilterPolicyList = new LinkedList<>();
+
+    private final List<DataMaskPolicy> dataMaskPolicyList = new LinkedList<>();
+
+    private final String[] usernames = new String[LOOKUPS];
+
+    private final String[] tableNames = new String[LOOKUPS];
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int tables = policyCount / USERS;
+        for (int user = 0; user < USERS; user++) {
+            for (int table = 0; table < tables; table++) {
+                rowFilterPolicyList.add(new RowFilterPolicy("user_" + user, CATALOG_NAME, DATABASE,
+                        "table_" + table, "id = " + table));
+                dataMaskPolicyList.add(new DataMaskPolicy("user_" + user, CATALOG_NAME, DATABASE, "table_" + table,
+                        COLUMN_NAME, "MASK"));
+            }
+        }
+        policyManager = new PolicyManager();
+        policyManager.addPolicies(new ArrayList<>(rowFilterPolicyList), new ArrayList<>(dataMaskPolicyList));
+
+        Random random = new Random(42);
+        for (int index = 0; index < LOOKUPS; index++) {
+            usernames[index] = "user_" + random.nextInt(USERS);
+            tableNames[index] = "table_" + random.nextInt(tables);
+        }
+    }
+
+    @Benchmark
+    public Optional<String> indexedRowFilterLookup() {
+        int index = nextIndex();
+        return policyManager.getRowFilterCondition(usernames[index], CATALOG_NAME, DATABASE, tableNames[index]);
+    }
+
+    @Benchmark
+    public Optional<String> linearRowFilterLookup() {
+        int index = nextIndex();
+        for (RowFilterPolicy policy : rowFilterPolicyList) {
+            if (policy.getUsername().equals(usernames[index])
+                    && policy.getCatalogName().equals(CATALOG_NAME)
+                    && policy.getDatabase().equals(DATABASE)
+                    && policy.getTableName().equals(tableNames[index])) {
+                return Optional.ofNullable(policy.getCondition());
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Benchmark
+    public Optional<String> indexedDataMaskLookup() {
+        int index = nextIndex();
+        return policyManager.getDataMaskCondition(usernames[index], CATALOG_NAME, DATABASE, tableNames[index],
+                COLUMN_NAME);
+    }
+
+    @Benchmark
+    public Optional<String> linearDataMaskLookup() {
+        int index = nextIndex();
+        for (DataMaskPolicy policy : dataMaskPolicyList) {
+            if (policy.getUsername().equals(usernames[index])
+                    && policy.getCatalogName().equals(CATALOG_NAME)
+                    && policy.getDatabase().equals(DATABASE)
+                    && policy.getTableName().equals(tableNames[index])
+                    && policy.getColumnName().equals(COLUMN_NAME)) {
+                return Optional.ofNullable(policy.getCondition());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return next;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PolicyLookupBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
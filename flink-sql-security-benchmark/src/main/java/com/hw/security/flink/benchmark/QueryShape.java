@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.benchmark;
+
+/**
+ * The query shapes of the benchmark, all of them read tables with row-level filter or data mask policies.
+ *
+ * @author: HamaWhite
+ */
+public enum QueryShape {
+
+    SINGLE_TABLE("SELECT order_id, customer_name, product_id, region FROM orders WHERE price > 10"),
+
+    THREE_WAY_JOIN("SELECT o.order_id, o.customer_name, p.name, s.origin, s.destination "
+            + "FROM orders AS o "
+            + "LEFT JOIN products AS p ON o.product_id = p.id "
+            + "LEFT JOIN shipments AS s ON o.order_id = s.order_id "
+            + "WHERE o.order_status = true"),
+
+    NESTED_SUB_QUERY("SELECT t.customer_name, t.total FROM ("
+            + "SELECT customer_name, SUM(price) AS total FROM ("
+            + "SELECT o.customer_name, o.price FROM orders AS o "
+            + "WHERE o.product_id IN (SELECT id FROM products WHERE name LIKE 'a%')"
+            + ") AS s GROUP BY customer_name"
+            + ") AS t WHERE t.total > 100"),
+
+    WIDE_TABLE("SELECT c0, c1, c2, c3, c4, c5, c6, c7, c8, c9 FROM wide_table WHERE c10 = 'x'");
+
+    private final String sql;
+
+    QueryShape(String sql) {
+        this.sql = sql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.benchmark;
+
+import com.hw.security.flink.PolicyManager;
+import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.config.SecurityOptions;
+import com.hw.security.flink.policy.DataMaskPolicy;
+import com.hw.security.flink.policy.RowFilterPolicy;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.catalog.GenericInMemoryCatalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of rewriteRowFilter, rewriteDataMask and mixedRewrite over an in-memory catalog, so that neither a Hive
+ * metastore nor a MySQL database is needed. The rewrite cache is disabled, every invocation parses, validates,
+ * rewrites and unparses the sql.
+ *
+ * <p>Run all the benchmarks with the allocation rate per rewrite reported by the GC profiler:
+ *
+ * <pre>
+ * $ mvn clean install -DskipTests
+ * $ cd flink-sql-security-benchmark
+ * $ mvn clean package
+ * $ java -jar target/benchmarks.jar -prof gc
+ * </pre>
+ *
+ * @author: HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RewriteBenchmark {
+
+    static final String CATALOG_NAME = "memory";
+    static final String DATABASE = "default";
+    static final String USERNAME = "user_A";
+
+    private static final int WIDE_TABLE_COLUMNS = 300;
+    private static final int WIDE_TABLE_MASKED_COLUMNS = 30;
+
+    @Param
+    private QueryShape queryShape;
+
+    private SecurityContext securityContext;
+
+    private String sql;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Configuration configuration = new Configuration();
+        configuration.set(SecurityOptions.REWRITE_ONLY, true);
+        // measure the whole rewrite rather than the cache lookup
+        configuration.set(SecurityOptions.REWRITE_CACHE_MAX_SIZE, 0L);
+
+        PolicyManager policyManager = new PolicyManager();
+        securityContext = new SecurityContext(policyManager, configuration);
+        securityContext.useCatalog(new GenericInMemoryCatalog(CATALOG_NAME, DATABASE));
+        // the mask functions are provided by the hive module
+        securityContext.execute("LOAD MODULE hive WITH ('hive-version' = '3.1.2')");
+
+        createTables(securityContext);
+        addPolicies(policyManager);
+        sql = queryShape.getSql();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        securityContext.close();
+    }
+
+    @Benchmark
+    public String rewriteRowFilter() {
+        return securityContext.rewriteRowFilter(USERNAME, sql);
+    }
+
+    @Benchmark
+    public String rewriteDataMask() {
+        return securityContext.rewriteDataMask(USERNAME, sql);
+    }
+
+    @Benchmark
+    public String mixedRewrite() {
+        return securityContext.mixedRewrite(USERNAME, sql);
+    }
+
+    /**
+     * Create the tables of the query shapes in the current catalog
+     */
+    static void createTables(SecurityContext securityContext) {
+        securityContext.execute("CREATE TABLE orders (" +
+                "       order_id            INT PRIMARY KEY NOT ENFORCED ," +
+                "       order_date          TIMESTAMP(0)                 ," +
+                "       customer_name       STRING                       ," +
+                "       product_id          INT                          ," +
+                "       price               DECIMAL(10, 5)               ," +
+                "       order_status        BOOLEAN                      ," +
+                "       region              STRING                        " +
+                ") WITH ('connector' = 'datagen')");
+
+        securityContext.execute("CREATE TABLE products (" +
+                "       id                  INT PRIMARY KEY NOT ENFORCED ," +
+                "       name                STRING                       ," +
+                "       description         STRING                        " +
+                ") WITH ('connector' = 'datagen')");
+
+        securityContext.execute("CREATE TABLE shipments (" +
+                "       shipment_id          INT PRIMARY KEY NOT ENFORCED ," +
+                "       order_id             INT                          ," +
+                "       origin               STRING                       ," +
+                "       destination          STRING                       ," +
+                "       is_arrived           BOOLEAN                       " +
+                ") WITH ('connector' = 'datagen')");
+
+        StringBuilder columns = new StringBuilder();
+        for (int index = 0; index < WIDE_TABLE_COLUMNS; index++) {
+            columns.append(index == 0 ? "" : ", ").append("c").append(index).append(" STRING");
+        }
+        securityContext.execute("CREATE TABLE wide_table (" + columns + ") WITH ('connector' = 'datagen')");
+    }
+
+    /**
+     * Add the row-level filter and data mask policies of the user on the tables of the query shapes
+     */
+    static void addPolicies(PolicyManager policyManager) {
+        policyManager.addPolicy(rowFilterPolicy("orders", "region = 'beijing'"));
+        policyManager.addPolicy(rowFilterPolicy("products", "description IS NOT NULL"));
+        policyManager.addPolicy(rowFilterPolicy("shipments", "is_arrived = false"));
+        policyManager.addPolicy(rowFilterPolicy("wide_table", "c0 <> 'hidden'"));
+
+        policyManager.addPolicy(dataMaskPolicy("orders", "customer_name", "MASK"));
+        policyManager.addPolicy(dataMaskPolicy("products", "name", "MASK_SHOW_LAST_4"));
+        policyManager.addPolicy(dataMaskPolicy("shipments", "destination", "MASK_HASH"));
+        for (int index = 0; index < WIDE_TABLE_MASKED_COLUMNS; index++) {
+            policyManager.addPolicy(dataMaskPolicy("wide_table", "c" + index * 10, "MASK_SHOW_FIRST_4"));
+        }
+    }
+
+    private static RowFilterPolicy rowFilterPolicy(String tableName, String condition) {
+        return new RowFilterPolicy(USERNAME, CATALOG_NAME, DATABASE, tableName, condition);
+    }
+
+    private static DataMaskPolicy dataMaskPolicy(String tableName, String columnName, String condition) {
+        return new DataMaskPolicy(USERNAME, CATALOG_NAME, DATABASE, tableName, columnName, condition);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RewriteBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
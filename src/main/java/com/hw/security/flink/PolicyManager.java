@@ -22,93 +22,222 @@ import com.alibaba.fastjson2.JSON;
 import com.hw.security.flink.enums.DataMaskType;
 import com.hw.security.flink.exception.CustomException;
 import com.hw.security.flink.policy.DataMaskPolicy;
+import com.hw.security.flink.policy.PolicySnapshot;
 import com.hw.security.flink.policy.RowFilterPolicy;
 import com.hw.security.flink.util.ResourceReader;
 
-import org.apache.commons.lang3.StringUtils;
+import org.apache.calcite.config.Lex;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.parser.SqlParser;
+import org.apache.flink.sql.parser.validate.FlinkSqlConformance;
+import org.apache.flink.table.catalog.ObjectIdentifier;
+import org.apache.flink.table.planner.delegation.FlinkSqlParserFactories;
+import org.apache.flink.table.planner.parse.CalciteParser;
 
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The manager of row-level filter and data masking policies,which can be connected to the policies in ranger later.
  *
+ * <p>Policies are indexed by username, then by table identifier (and by column name for data masking), so that each
+ * lookup is a few hash probes no matter how many policies are registered.
+ *
+ * <p>The policies are published as immutable {@link PolicySnapshot}s. Readers get the current snapshot without any
+ * locking, while writers are serialized and atomically replace it with a new snapshot of a larger version. Loading many
+ * policies with {@link #addPolicies} or {@link #replacePolicies} publishes only one snapshot.
+ *
+ * <p>The row-level filter conditions are compiled when the policies are added, so an invalid condition is rejected
+ * early and the rewrite only copies the compiled expression instead of parsing it.
+ *
  * @author: HamaWhite
  */
 public class PolicyManager {
 
     private static final String DATA_MASK_TYPES_FILE = "data_mask_types.json";
 
-    private final List<RowFilterPolicy> rowFilterPolicyList;
+    /**
+     * The same parser config as the default dialect of Flink planner
+     */
+    private static final SqlParser.Config PARSER_CONFIG = SqlParser.config()
+            .withParserFactory(FlinkSqlParserFactories.create(FlinkSqlConformance.DEFAULT))
+            .withConformance(FlinkSqlConformance.DEFAULT)
+            .withLex(Lex.JAVA)
+            .withIdentifierMaxLength(256);
 
-    private final List<DataMaskPolicy> dataMaskPolicyList;
+    private final CalciteParser conditionParser = new CalciteParser(PARSER_CONFIG);
 
-    private final List<DataMaskType> maskTypeList;
+    private final Map<String, DataMaskType> maskTypeMap;
 
-    public PolicyManager() {
-        this.rowFilterPolicyList = new LinkedList<>();
-        this.dataMaskPolicyList = new LinkedList<>();
+    /**
+     * row-level filter condition -> compiled expression, which is bounded by the number of distinct conditions in the
+     * current policies and must not be modified
+     */
+    private final Map<String, SqlNode> rowFilterTemplateMap = new ConcurrentHashMap<>();
+
+    /**
+     * row-level filter condition -> number of the policies using it, the compiled expression is removed together with
+     * the last policy. Guarded by this.
+     */
+    private final Map<String, Integer> rowFilterConditionCountMap = new HashMap<>();
 
+    private volatile PolicySnapshot snapshot = PolicySnapshot.empty();
+
+    public PolicyManager() {
         try {
             byte[] bytes = ResourceReader.readFile(DATA_MASK_TYPES_FILE);
-            this.maskTypeList = JSON.parseArray(new String(bytes), DataMaskType.class);
+            List<DataMaskType> maskTypeList = JSON.parseArray(new String(bytes), DataMaskType.class);
+
+            this.maskTypeMap = new HashMap<>(maskTypeList.size());
+            // keep the first one if the type name is duplicated
+            maskTypeList.forEach(maskType -> maskTypeMap.putIfAbsent(maskType.getName(), maskType));
         } catch (Exception e) {
             throw new CustomException(String.format("read file %s error", DATA_MASK_TYPES_FILE), e);
         }
     }
 
+    /**
+     * Return the current policies, a rewrite should use one snapshot from beginning to end
+     */
+    public PolicySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Return the version of the current policies, which increases every time the policies change
+     */
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
     public Optional<String> getRowFilterCondition(String username, String catalogName, String database,
             String tableName) {
-        for (RowFilterPolicy policy : rowFilterPolicyList) {
-            if (policy.getUsername().equals(username)
-                    && policy.getCatalogName().equals(catalogName)
-                    && policy.getDatabase().equals(database)
-                    && policy.getTableName().equals(tableName)) {
-                return Optional.ofNullable(policy.getCondition());
-            }
-        }
-        return Optional.empty();
+        return snapshot.getRowFilterCondition(username, ObjectIdentifier.of(catalogName, database, tableName));
     }
 
     public Optional<String> getDataMaskCondition(String username, String catalogName, String database, String tableName,
             String columnName) {
-        for (DataMaskPolicy policy : dataMaskPolicyList) {
-            if (policy.getUsername().equals(username)
-                    && policy.getCatalogName().equals(catalogName)
-                    && policy.getDatabase().equals(database)
-                    && policy.getTableName().equals(tableName)
-                    && policy.getColumnName().equals(columnName)) {
-                return Optional.ofNullable(policy.getCondition());
-            }
-        }
-        return Optional.empty();
+        return snapshot.getDataMaskCondition(username, ObjectIdentifier.of(catalogName, database, tableName),
+                columnName);
+    }
+
+    /**
+     * Get the data mask conditions of all columns of a table in one lookup.
+     *
+     * @return column name -> data mask condition, or an immutable empty map if no column of the table is masked
+     */
+    public Map<String, String> getDataMaskConditions(String username, String catalogName, String database,
+            String tableName) {
+        return snapshot.getDataMaskConditions(username, ObjectIdentifier.of(catalogName, database, tableName));
     }
 
     public DataMaskType getDataMaskType(String typeName) {
-        DataMaskType ret = null;
-        for (DataMaskType maskType : maskTypeList) {
-            if (StringUtils.equals(maskType.getName(), typeName)) {
-                ret = maskType;
-                break;
-            }
+        return typeName == null ? null : maskTypeMap.get(typeName);
+    }
+
+    /**
+     * Get the compiled expression of the row-level filter condition, the caller must copy it before modifying
+     */
+    public SqlNode getRowFilterTemplate(String condition) {
+        SqlNode template = rowFilterTemplateMap.get(condition);
+        // a rewrite may still use a snapshot whose policy has just been removed, the condition is parsed but not kept
+        return template != null ? template : conditionParser.parseExpression(condition);
+    }
+
+    public synchronized boolean addPolicy(RowFilterPolicy policy) {
+        // compile the condition before publishing, an invalid condition throws SqlParserException
+        compileRowFilterCondition(policy.getCondition());
+        snapshot = snapshot.withPolicy(policy);
+        return true;
+    }
+
+    public synchronized boolean removePolicy(RowFilterPolicy policy) {
+        if (!publish(snapshot.withoutPolicy(policy))) {
+            return false;
         }
-        return ret;
+        releaseRowFilterCondition(policy.getCondition());
+        return true;
+    }
+
+    public synchronized boolean addPolicy(DataMaskPolicy policy) {
+        snapshot = snapshot.withPolicy(policy);
+        return true;
     }
 
-    public boolean addPolicy(RowFilterPolicy policy) {
-        return rowFilterPolicyList.add(policy);
+    public synchronized boolean removePolicy(DataMaskPolicy policy) {
+        return publish(snapshot.withoutPolicy(policy));
     }
 
-    public boolean removePolicy(RowFilterPolicy policy) {
-        return rowFilterPolicyList.remove(policy);
+    /**
+     * Add many policies and publish them as one snapshot, such as loading the policies at startup. If any row-level
+     * filter condition is invalid, SqlParserException is thrown and no policy is added.
+     */
+    public synchronized void addPolicies(Collection<RowFilterPolicy> rowFilterPolicies,
+            Collection<DataMaskPolicy> dataMaskPolicies) {
+        publishAll(snapshot.toBuilder(), compileRowFilterConditions(rowFilterPolicies), rowFilterPolicies,
+                dataMaskPolicies);
     }
 
-    public boolean addPolicy(DataMaskPolicy policy) {
-        return dataMaskPolicyList.add(policy);
+    /**
+     * Replace all the policies with the given ones in one snapshot, such as reloading the policies from ranger. If any
+     * row-level filter condition is invalid, SqlParserException is thrown and the current policies are kept.
+     */
+    public synchronized void replacePolicies(Collection<RowFilterPolicy> rowFilterPolicies,
+            Collection<DataMaskPolicy> dataMaskPolicies) {
+        Map<String, SqlNode> compiledMap = compileRowFilterConditions(rowFilterPolicies);
+        rowFilterConditionCountMap.clear();
+        rowFilterTemplateMap.keySet().retainAll(compiledMap.keySet());
+        publishAll(snapshot.toBuilder().clear(), compiledMap, rowFilterPolicies, dataMaskPolicies);
     }
 
-    public boolean removePolicy(DataMaskPolicy policy) {
-        return dataMaskPolicyList.remove(policy);
+    private void publishAll(PolicySnapshot.Builder builder, Map<String, SqlNode> compiledMap,
+            Collection<RowFilterPolicy> rowFilterPolicies, Collection<DataMaskPolicy> dataMaskPolicies) {
+        rowFilterTemplateMap.putAll(compiledMap);
+        for (RowFilterPolicy policy : rowFilterPolicies) {
+            rowFilterConditionCountMap.merge(policy.getCondition(), 1, Integer::sum);
+            builder.add(policy);
+        }
+        dataMaskPolicies.forEach(builder::add);
+        snapshot = builder.build();
+    }
+
+    /**
+     * Compile the distinct conditions of the policies before anything changes, the compiled ones are reused
+     */
+    private Map<String, SqlNode> compileRowFilterConditions(Collection<RowFilterPolicy> policies) {
+        Map<String, SqlNode> compiledMap = new HashMap<>();
+        for (RowFilterPolicy policy : policies) {
+            compiledMap.computeIfAbsent(policy.getCondition(), this::getRowFilterTemplate);
+        }
+        return compiledMap;
+    }
+
+    private void compileRowFilterCondition(String condition) {
+        if (!rowFilterTemplateMap.containsKey(condition)) {
+            rowFilterTemplateMap.put(condition, conditionParser.parseExpression(condition));
+        }
+        rowFilterConditionCountMap.merge(condition, 1, Integer::sum);
+    }
+
+    private void releaseRowFilterCondition(String condition) {
+        if (rowFilterConditionCountMap.computeIfPresent(condition,
+                (key, count) -> count > 1 ? count - 1 : null) == null) {
+            rowFilterTemplateMap.remove(condition);
+        }
+    }
+
+    /**
+     * Replace the current snapshot, return false if nothing has changed
+     */
+    private boolean publish(PolicySnapshot newSnapshot) {
+        if (newSnapshot == snapshot) {
+            return false;
+        }
+        snapshot = newSnapshot;
+        return true;
     }
 }
@@ -18,170 +18,651 @@
 
 package com.hw.security.flink;
 
-import com.hw.security.flink.exception.CustomException;
+import com.google.common.cache.CacheStats;
+import com.hw.security.flink.cache.DataMaskTemplateCache;
+import com.hw.security.flink.cache.RewriteCache;
+import com.hw.security.flink.cache.SchemaCache;
+import com.hw.security.flink.config.SecurityOptions;
+import com.hw.security.flink.enums.RewriteMode;
+import com.hw.security.flink.enums.RewritePhase;
+import com.hw.security.flink.function.MaskFirstNFunction;
+import com.hw.security.flink.function.MaskFunction;
+import com.hw.security.flink.function.MaskHashFunction;
+import com.hw.security.flink.function.MaskLastNFunction;
+import com.hw.security.flink.function.MaskShowFirstNFunction;
+import com.hw.security.flink.function.MaskShowLastNFunction;
+import com.hw.security.flink.metrics.InMemoryRewriteMetrics;
+import com.hw.security.flink.metrics.RewriteMetrics;
 import com.hw.security.flink.model.ColumnEntity;
+import com.hw.security.flink.model.RewriteResult;
+import com.hw.security.flink.model.RewrittenSql;
 import com.hw.security.flink.model.TableEntity;
+import com.hw.security.flink.policy.PolicySnapshot;
+import com.hw.security.flink.policy.TablePolicy;
+import com.hw.security.flink.pool.AsyncRewriteExecutor;
+import com.hw.security.flink.pool.ParserPool;
+import com.hw.security.flink.result.CursorManager;
+import com.hw.security.flink.result.ResultCursor;
+import com.hw.security.flink.result.ResultIterator;
+import com.hw.security.flink.visitor.ColumnRefVisitor;
 import com.hw.security.flink.visitor.DataMaskVisitor;
+import com.hw.security.flink.visitor.MixedVisitor;
 import com.hw.security.flink.visitor.RowFilterVisitor;
+import com.hw.security.flink.visitor.TableRefVisitor;
+import com.hw.security.flink.visitor.basic.RewriteContext;
 
 import org.apache.calcite.sql.SqlNode;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.CoreOptions;
 import org.apache.flink.configuration.RestOptions;
-import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.sql.parser.ddl.SqlCreateTable;
+import org.apache.flink.sql.parser.ddl.SqlCreateTableAs;
+import org.apache.flink.sql.parser.ddl.SqlCreateView;
+import org.apache.flink.sql.parser.ddl.SqlUseCatalog;
+import org.apache.flink.sql.parser.ddl.SqlUseDatabase;
+import org.apache.flink.streaming.api.operators.collect.CollectSinkOperatorFactory;
 import org.apache.flink.table.api.*;
 import org.apache.flink.table.api.Schema.UnresolvedColumn;
 import org.apache.flink.table.api.Schema.UnresolvedComputedColumn;
 import org.apache.flink.table.api.Schema.UnresolvedMetadataColumn;
 import org.apache.flink.table.api.Schema.UnresolvedPhysicalColumn;
-import org.apache.flink.table.api.bridge.java.StreamTableEnvironment;
 import org.apache.flink.table.api.internal.TableEnvironmentImpl;
 import org.apache.flink.table.catalog.*;
 import org.apache.flink.table.catalog.exceptions.TableNotExistException;
+import org.apache.flink.table.operations.CreateTableASOperation;
+import org.apache.flink.table.operations.DescribeTableOperation;
+import org.apache.flink.table.operations.ExplainOperation;
+import org.apache.flink.table.operations.ModifyOperation;
+import org.apache.flink.table.operations.Operation;
+import org.apache.flink.table.operations.QueryOperation;
+import org.apache.flink.table.operations.ShowOperation;
+import org.apache.flink.table.operations.UseOperation;
+import org.apache.flink.table.operations.ddl.*;
 import org.apache.flink.table.planner.delegation.ParserImpl;
+import org.apache.flink.table.planner.delegation.PlannerBase;
+import org.apache.flink.table.planner.delegation.PlannerContext;
 import org.apache.flink.types.Row;
-import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BinaryOperator;
 import java.util.stream.Collectors;
-import javassist.*;
 
 /**
- * @description: SecurityContext
+ * The entry of rewriting and executing SQL with row-level filter and data mask policies.
+ *
+ * <p>The rewrite methods are thread-safe. Each rewrite borrows a parser from a bounded {@link ParserPool} and holds
+ * the read lock of the catalogs, while changing the catalogs, such as {@link #useCatalog} and executing DDL, holds the
+ * write lock.
+ *
  * @author: HamaWhite
  */
-public class SecurityContext {
+public class SecurityContext implements AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(SecurityContext.class);
 
     private TableEnvironmentImpl tableEnv;
 
-    private final ParserImpl parser;
+    private final boolean rewriteOnly;
+
+    private final boolean nativeTransformerEnabled;
+
+    private final boolean columnPruningEnabled;
+
+    private final ParserPool parserPool;
 
     private final PolicyManager policyManager;
 
-    static {
-        /*
-         * Use javassist to modify the bytecode to add the variable custom to org.apache.calcite.sql.SqlSelect, which is
-         * used to mark whether SqlSelect is custom generated
-         */
-        try {
-            ClassPool classPool = ClassPool.getDefault();
-            CtClass ctClass = classPool.getCtClass("org.apache.calcite.sql.SqlSelect");
-
-            // add field custom, the default value is false
-            CtField field = new CtField(CtClass.booleanType, "custom", ctClass);
-            ctClass.addField(field, CtField.Initializer.constant(false));
-            // add set method
-            CtMethod setMethod = CtNewMethod.setter("setCustom", field);
-            ctClass.addMethod(setMethod);
-            // add get method
-            CtMethod getMethod = CtNewMethod.getter("isCustom", field);
-            ctClass.addMethod(getMethod);
-            // load class
-            ctClass.toClass();
-        } catch (Exception e) {
-            throw new CustomException("Dynamic add field method exception.", e);
-        }
-    }
+    private final RewriteCache rewriteCache;
+
+    private final SchemaCache schemaCache;
+
+    private final DataMaskTemplateCache dataMaskTemplateCache = new DataMaskTemplateCache();
+
+    private final ReadWriteLock catalogLock = new ReentrantReadWriteLock();
+
+    private final Lock executeLock = new ReentrantLock();
+
+    private final int batchRewriteThreads;
+
+    /**
+     * The threads are started by the first asynchronous rewrite
+     */
+    private final AsyncRewriteExecutor asyncRewriteExecutor;
+
+    private final CursorManager cursorManager;
+
+    private final RewriteMetrics rewriteMetrics;
+
+    /**
+     * Created on the first batch rewrite, since most users never call it
+     */
+    private volatile ExecutorService batchRewriteExecutor;
 
     public SecurityContext(PolicyManager policyManager) {
+        this(policyManager, new Configuration());
+    }
+
+    public SecurityContext(PolicyManager policyManager, Configuration configuration) {
+        this(policyManager, configuration, new InMemoryRewriteMetrics());
+    }
+
+    public SecurityContext(PolicyManager policyManager, Configuration configuration, RewriteMetrics rewriteMetrics) {
         this.policyManager = policyManager;
+        this.rewriteMetrics = rewriteMetrics;
+        this.rewriteOnly = configuration.get(SecurityOptions.REWRITE_ONLY);
+        this.nativeTransformerEnabled = configuration.get(SecurityOptions.DATA_MASK_NATIVE_TRANSFORMER);
+        this.columnPruningEnabled = configuration.get(SecurityOptions.DATA_MASK_COLUMN_PRUNING);
         // init table environment
-        initTableEnvironment();
-        this.parser = (ParserImpl) tableEnv.getParser();
+        initTableEnvironment(configuration);
+        this.parserPool = new ParserPool(configuration.get(SecurityOptions.PARSER_POOL_SIZE), this::createParser);
+        this.rewriteCache = new RewriteCache(configuration.get(SecurityOptions.REWRITE_CACHE_MAX_SIZE),
+                configuration.get(SecurityOptions.REWRITE_CACHE_TTL));
+        this.schemaCache = new SchemaCache(configuration.get(SecurityOptions.SCHEMA_CACHE_MAX_SIZE),
+                configuration.get(SecurityOptions.SCHEMA_CACHE_TTL));
+        this.batchRewriteThreads = configuration.get(SecurityOptions.BATCH_REWRITE_THREADS);
+        this.asyncRewriteExecutor = new AsyncRewriteExecutor(configuration.get(SecurityOptions.ASYNC_REWRITE_THREADS),
+                configuration.get(SecurityOptions.ASYNC_REWRITE_QUEUE_CAPACITY));
+        this.cursorManager = new CursorManager(configuration.get(SecurityOptions.CURSOR_MAX_OPEN),
+                configuration.get(SecurityOptions.CURSOR_IDLE_TIMEOUT));
     }
 
-    private void initTableEnvironment() {
-        Configuration configuration = new Configuration();
-        configuration.setString(RestOptions.BIND_PORT, "8081-8189");
-
-        try (StreamExecutionEnvironment env = StreamExecutionEnvironment.createLocalEnvironment(configuration)) {
-            env.setParallelism(1);
+    private ExecutorService getBatchRewriteExecutor() {
+        if (batchRewriteExecutor == null) {
+            synchronized (this) {
+                if (batchRewriteExecutor == null) {
+                    batchRewriteExecutor = Executors.newFixedThreadPool(batchRewriteThreads,
+                            new ExecutorThreadFactory("security-batch-rewrite"));
+                }
+            }
+        }
+        return batchRewriteExecutor;
+    }
 
-            EnvironmentSettings settings = EnvironmentSettings.newInstance()
-                    .inStreamingMode()
-                    .build();
-            this.tableEnv = (TableEnvironmentImpl) StreamTableEnvironment.create(env, settings);
+    /**
+     * Stop the threads of the batch and asynchronous rewrites, the rewrites that have been submitted are still
+     * completed. The open cursors are closed and their jobs are cancelled.
+     */
+    @Override
+    public void close() {
+        if (batchRewriteExecutor != null) {
+            batchRewriteExecutor.shutdown();
+        }
+        asyncRewriteExecutor.shutdown();
+        cursorManager.closeAll();
+    }
 
-        } catch (Exception e) {
-            throw new FlinkRuntimeException("Init local flink execution environment error", e);
+    /**
+     * Only the planner, catalog manager and function catalog are built here, which are enough to parse, validate and
+     * unparse. The local cluster that runs the jobs, with its REST endpoint, threads and memory, is not started until
+     * a query or insert is executed.
+     */
+    private void initTableEnvironment(Configuration securityConfiguration) {
+        Configuration configuration = new Configuration();
+        if (!rewriteOnly) {
+            configuration.setString(RestOptions.BIND_PORT, "8081-8189");
+            configuration.set(CoreOptions.DEFAULT_PARALLELISM, 1);
+            configuration.set(CollectSinkOperatorFactory.MAX_BATCH_SIZE,
+                    securityConfiguration.get(SecurityOptions.RESULT_PREFETCH_SIZE));
+        }
+        EnvironmentSettings settings = EnvironmentSettings.newInstance()
+                .inStreamingMode()
+                .withConfiguration(configuration)
+                .build();
+        this.tableEnv = (TableEnvironmentImpl) TableEnvironment.create(settings);
+        if (securityConfiguration.get(SecurityOptions.MASK_FUNCTIONS_NATIVE)) {
+            registerMaskFunctions();
         }
     }
 
+    /**
+     * The temporary system functions take precedence over the functions of the Hive module, so the rewritten SQL
+     * is unchanged while the masking runs on the native functions.
+     */
+    private void registerMaskFunctions() {
+        tableEnv.createTemporarySystemFunction(MaskFunction.NAME, MaskFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskFirstNFunction.NAME, MaskFirstNFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskLastNFunction.NAME, MaskLastNFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskShowFirstNFunction.NAME, MaskShowFirstNFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskShowLastNFunction.NAME, MaskShowLastNFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskHashFunction.NAME, MaskHashFunction.class);
+    }
+
+    /**
+     * Create a parser which shares the catalogs and functions of the table environment
+     */
+    private ParserImpl createParser() {
+        PlannerContext plannerContext = ((PlannerBase) tableEnv.getPlanner()).plannerContext();
+        return new ParserImpl(tableEnv.getCatalogManager(),
+                plannerContext::createFlinkPlanner,
+                plannerContext::createCalciteParser,
+                plannerContext.getRexFactory());
+    }
+
     public void useCatalog(AbstractCatalog catalog) {
-        if (!tableEnv.getCatalog(catalog.getName()).isPresent()) {
-            tableEnv.registerCatalog(catalog.getName(), catalog);
+        catalogLock.writeLock().lock();
+        try {
+            if (!tableEnv.getCatalog(catalog.getName()).isPresent()) {
+                tableEnv.registerCatalog(catalog.getName(), catalog);
+            }
+            tableEnv.useCatalog(catalog.getName());
+            // unqualified table names may refer to other tables now
+            rewriteCache.invalidateAll();
+        } finally {
+            catalogLock.writeLock().unlock();
         }
-        tableEnv.useCatalog(catalog.getName());
     }
 
     /**
      * Add row-level filter and return new SQL
      */
     public String rewriteRowFilter(String username, String singleSql) {
-        // parse and validate sql
-        SqlNode validated = validate(singleSql);
-
-        // add row-level filter and return a new abstract syntax tree
-        RowFilterVisitor visitor = new RowFilterVisitor(this, username);
-        validated.accept(visitor);
-
-        return validated.toString();
+        return rewrite(username, singleSql, RewriteMode.ROW_FILTER);
     }
 
     /**
      * Add column masking and return new SQL
      */
     public String rewriteDataMask(String username, String singleSql) {
-        // parse and validate sql
-        SqlNode validated = validate(singleSql);
-
-        // add data masking and return a new abstract syntax tree
-        DataMaskVisitor visitor = new DataMaskVisitor(this, username);
-        validated.accept(visitor);
-
-        return validated.toString();
+        return rewrite(username, singleSql, RewriteMode.DATA_MASK);
     }
 
     /**
      * Add row-level filter and column masking, then return new SQL.
      */
     public String mixedRewrite(String username, String singleSql) {
-        // parse and validate sql
-        SqlNode validated = validate(singleSql);
+        return rewrite(username, singleSql, RewriteMode.MIXED);
+    }
 
-        // add row-level filter and return a new abstract syntax tree
-        RowFilterVisitor rowFilterVisitor = new RowFilterVisitor(this, username);
-        validated.accept(rowFilterVisitor);
+    /**
+     * Rewrite the single sql with user policies according to the rewrite mode, the result is cached until the
+     * policies change.
+     *
+     * <p>If no policy applies to the tables of the sql, the sql is returned unchanged without being validated. A user
+     * without any policy does not even need to parse it.
+     */
+    public String rewrite(String username, String singleSql, RewriteMode mode) {
+        // pin the policies for the whole rewrite, the cached SQL is keyed by the version of this snapshot
+        return rewrite(username, singleSql, mode, policyManager.getSnapshot(), new HashMap<>());
+    }
+
+    /**
+     * Add row-level filter asynchronously, see {@link #rewriteAsync}
+     */
+    public CompletableFuture<String> rewriteRowFilterAsync(String username, String singleSql) {
+        return rewriteAsync(username, singleSql, RewriteMode.ROW_FILTER);
+    }
+
+    /**
+     * Add column masking asynchronously, see {@link #rewriteAsync}
+     */
+    public CompletableFuture<String> rewriteDataMaskAsync(String username, String singleSql) {
+        return rewriteAsync(username, singleSql, RewriteMode.DATA_MASK);
+    }
+
+    /**
+     * Add row-level filter and column masking asynchronously, see {@link #rewriteAsync}
+     */
+    public CompletableFuture<String> mixedRewriteAsync(String username, String singleSql) {
+        return rewriteAsync(username, singleSql, RewriteMode.MIXED);
+    }
+
+    /**
+     * Rewrite the single sql on the bounded asynchronous rewrite executor, which never blocks the caller.
+     *
+     * <p>The future fails with {@link java.util.concurrent.RejectedExecutionException} if too many rewrites are
+     * waiting, and cancelling it cancels the rewrite.
+     */
+    public CompletableFuture<String> rewriteAsync(String username, String singleSql, RewriteMode mode) {
+        return asyncRewriteExecutor.submit(() -> rewrite(username, singleSql, mode));
+    }
+
+    /**
+     * Return the number of asynchronous rewrites waiting for a thread
+     */
+    public int getAsyncRewriteQueueDepth() {
+        return asyncRewriteExecutor.getQueueDepth();
+    }
 
-        // add data masking and return a new abstract syntax tree
-        DataMaskVisitor dataMaskVisitor = new DataMaskVisitor(this, username);
-        validated.accept(dataMaskVisitor);
+    /**
+     * Return the number of asynchronous rewrites that are running
+     */
+    public int getAsyncRewriteActiveCount() {
+        return asyncRewriteExecutor.getActiveCount();
+    }
 
-        return validated.toString();
+    /**
+     * Return the number of asynchronous rewrites rejected because too many rewrites are waiting
+     */
+    public long getAsyncRewriteRejectedCount() {
+        return asyncRewriteExecutor.getRejectedCount();
     }
 
     /**
-     * Parse and validate sql, then return the abstract syntax tree
+     * Rewrite the statements in parallel on the batch rewrite executor, see {@link #rewriteBatch(String, List,
+     * RewriteMode, Executor)}
      */
-    private SqlNode validate(String singleSql) {
+    public List<RewriteResult> rewriteBatch(String username, List<String> sqlList, RewriteMode mode) {
+        return rewriteBatch(username, sqlList, mode, getBatchRewriteExecutor());
+    }
+
+    /**
+     * Rewrite the statements in parallel on the executor. All statements are rewritten with the same policies, and the
+     * policies of each table are resolved only once for the whole batch.
+     *
+     * @return the results in the order of the statements, a statement that fails to rewrite does not fail the others
+     */
+    public List<RewriteResult> rewriteBatch(String username, List<String> sqlList, RewriteMode mode,
+            Executor executor) {
+        PolicySnapshot policySnapshot = policyManager.getSnapshot();
+        Map<String, TablePolicy> tablePolicyMap = new ConcurrentHashMap<>();
+
+        List<CompletableFuture<RewriteResult>> futureList = sqlList.stream()
+                .map(singleSql -> CompletableFuture.supplyAsync(
+                        () -> rewriteInBatch(username, singleSql, mode, policySnapshot, tablePolicyMap), executor))
+                .collect(Collectors.toList());
+
+        return futureList.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+    }
+
+    private RewriteResult rewriteInBatch(String username, String singleSql, RewriteMode mode,
+            PolicySnapshot policySnapshot, Map<String, TablePolicy> tablePolicyMap) {
+        try {
+            return RewriteResult.success(singleSql,
+                    rewrite(username, singleSql, mode, policySnapshot, tablePolicyMap));
+        } catch (Exception e) {
+            LOG.warn("Failed to rewrite SQL for user [{}]: {}", username, singleSql, e);
+            return RewriteResult.failure(singleSql, e);
+        }
+    }
+
+    private String rewrite(String username, String singleSql, RewriteMode mode, PolicySnapshot policySnapshot,
+            Map<String, TablePolicy> tablePolicyMap) {
+        long start = System.nanoTime();
+        String rewriteSql = singleSql;
+        if (policySnapshot.hasPolicy(username)) {
+            RewrittenSql rewrittenSql = rewriteCache.get(username, singleSql, mode, policySnapshot.getVersion(),
+                    () -> doRewrite(username, singleSql, mode, policySnapshot, tablePolicyMap));
+            rewrittenSql.getAppliedPolicies().count(username, rewriteMetrics);
+            rewriteSql = rewrittenSql.getSql();
+        }
+        rewriteMetrics.recordLatency(RewritePhase.TOTAL, System.nanoTime() - start);
+        return rewriteSql;
+    }
+
+    private RewrittenSql doRewrite(String username, String singleSql, RewriteMode mode, PolicySnapshot policySnapshot,
+            Map<String, TablePolicy> tablePolicyMap) {
+        return parserPool.execute(parser -> {
+            catalogLock.readLock().lock();
+            try {
+                RewriteContext rewriteContext =
+                        new RewriteContext(this, parser, username, policySnapshot, tablePolicyMap);
+                return new RewrittenSql(doRewrite(rewriteContext, singleSql, mode),
+                        rewriteContext.getAppliedPolicies());
+            } finally {
+                catalogLock.readLock().unlock();
+            }
+        });
+    }
+
+    private String doRewrite(RewriteContext rewriteContext, String singleSql, RewriteMode mode) {
+        ParserImpl parser = rewriteContext.getParser();
         // parsing sql and return the abstract syntax tree
+        long start = System.nanoTime();
         SqlNode sqlNode = parser.parseSql(singleSql);
+        rewriteMetrics.recordLatency(RewritePhase.PARSE, System.nanoTime() - start);
+        if (!hasApplicablePolicy(rewriteContext, sqlNode)) {
+            return singleSql;
+        }
+        return unparse(rewriteStatement(rewriteContext, sqlNode, mode));
+    }
 
+    private String unparse(SqlNode sqlNode) {
+        long start = System.nanoTime();
+        String sql = sqlNode.toString();
+        rewriteMetrics.recordLatency(RewritePhase.UNPARSE, System.nanoTime() - start);
+        return sql;
+    }
+
+    /**
+     * Rewrite a parsed statement and return the new abstract syntax tree. The DDL are not validated by the planner, so
+     * the queries of CREATE VIEW and CREATE TABLE AS SELECT are rewritten on their own.
+     */
+    private SqlNode rewriteStatement(RewriteContext rewriteContext, SqlNode sqlNode, RewriteMode mode) {
+        if (sqlNode instanceof SqlCreateTableAs) {
+            SqlCreateTableAs createTableAs = (SqlCreateTableAs) sqlNode;
+            return new SqlCreateTableAs(createTableAs.getParserPosition(),
+                    createTableAs.getTableName(),
+                    createTableAs.getColumnList(),
+                    createTableAs.getTableConstraints(),
+                    createTableAs.getPropertyList(),
+                    createTableAs.getPartitionKeyList(),
+                    createTableAs.getWatermark().orElse(null),
+                    createTableAs.getComment().orElse(null),
+                    rewriteStatement(rewriteContext, createTableAs.getAsQuery(), mode),
+                    createTableAs.isTemporary(),
+                    createTableAs.isIfNotExists());
+        } else if (sqlNode instanceof SqlCreateView) {
+            SqlCreateView createView = (SqlCreateView) sqlNode;
+            return new SqlCreateView(createView.getParserPosition(),
+                    createView.getViewName(),
+                    createView.getFieldList(),
+                    rewriteStatement(rewriteContext, createView.getQuery(), mode),
+                    createView.getReplace(),
+                    createView.isTemporary(),
+                    createView.isIfNotExists(),
+                    createView.getComment().orElse(null),
+                    createView.getProperties().orElse(null));
+        }
         // validate the ast
-        return parser.validate(sqlNode);
+        long start = System.nanoTime();
+        SqlNode validated = rewriteContext.getParser().validate(sqlNode);
+        rewriteMetrics.recordLatency(RewritePhase.VALIDATE, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        switch (mode) {
+            case ROW_FILTER:
+                // add row-level filter and return a new abstract syntax tree
+                validated.accept(new RowFilterVisitor(rewriteContext));
+                break;
+            case DATA_MASK:
+                // add data masking and return a new abstract syntax tree
+                validated.accept(new DataMaskVisitor(rewriteContext, collectReferencedColumns(validated)));
+                break;
+            case MIXED:
+                // add row-level filter and data masking in one traversal
+                validated.accept(new MixedVisitor(rewriteContext, collectReferencedColumns(validated)));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rewrite mode: " + mode);
+        }
+        rewriteMetrics.recordLatency(RewritePhase.REWRITE, System.nanoTime() - start);
+        return validated;
+    }
+
+    /**
+     * Return the names of the columns referenced by the validated statement, so that the masking sub-queries only read
+     * them. Null if the column pruning is disabled or some columns are read without being named.
+     */
+    private Set<String> collectReferencedColumns(SqlNode validated) {
+        if (!columnPruningEnabled) {
+            return null;
+        }
+        ColumnRefVisitor visitor = new ColumnRefVisitor();
+        validated.accept(visitor);
+        return visitor.isComplete() ? visitor.getColumnNameSet() : null;
+    }
+
+    /**
+     * Rewrite a script of statements separated by ';' in one call, and return the rewritten statements each ending
+     * with ';'. The result is cached until the policies change.
+     *
+     * <p>The statements are parsed once and rewritten in order. The tables and views created by the script are
+     * registered as temporary objects while the script is rewritten, so that the later statements using them can be
+     * validated, and are dropped afterwards. The USE statements are not supported, since they would change the tables
+     * that the later statements refer to.
+     */
+    public String rewriteScript(String username, String script, RewriteMode mode) {
+        long start = System.nanoTime();
+        PolicySnapshot policySnapshot = policyManager.getSnapshot();
+        String rewriteScript = script;
+        if (policySnapshot.hasPolicy(username)) {
+            RewrittenSql rewrittenSql = rewriteCache.getScript(username, script, mode, policySnapshot.getVersion(),
+                    () -> doRewriteScript(username, script, mode, policySnapshot));
+            rewrittenSql.getAppliedPolicies().count(username, rewriteMetrics);
+            rewriteScript = rewrittenSql.getSql();
+        }
+        rewriteMetrics.recordLatency(RewritePhase.TOTAL, System.nanoTime() - start);
+        return rewriteScript;
+    }
+
+    private RewrittenSql doRewriteScript(String username, String script, RewriteMode mode,
+            PolicySnapshot policySnapshot) {
+        return parserPool.execute(parser -> {
+            long start = System.nanoTime();
+            List<SqlNode> sqlNodeList = parser.parseSqlList(script);
+            rewriteMetrics.recordLatency(RewritePhase.PARSE, System.nanoTime() - start);
+            // registering the temporary objects changes the catalogs
+            boolean createObject = sqlNodeList.stream()
+                    .anyMatch(sqlNode -> sqlNode instanceof SqlCreateTable || sqlNode instanceof SqlCreateView);
+            Lock lock = createObject ? catalogLock.writeLock() : catalogLock.readLock();
+
+            List<Runnable> dropActionList = new ArrayList<>();
+            lock.lock();
+            try {
+                RewriteContext rewriteContext =
+                        new RewriteContext(this, parser, username, policySnapshot, new HashMap<>());
+                StringBuilder sb = new StringBuilder();
+                for (SqlNode sqlNode : sqlNodeList) {
+                    if (sqlNode instanceof SqlUseCatalog || sqlNode instanceof SqlUseDatabase) {
+                        throw new ValidationException(String.format(
+                                "USE statement is not supported in a script, please qualify the table names: %s",
+                                sqlNode));
+                    }
+                    // unparse before rewriting, which modifies the abstract syntax tree
+                    String originSql = sqlNode.toString();
+                    String rewriteSql = hasApplicablePolicy(rewriteContext, sqlNode)
+                            ? unparse(rewriteStatement(rewriteContext, sqlNode, mode))
+                            : originSql;
+                    if (sqlNode instanceof SqlCreateTable || sqlNode instanceof SqlCreateView) {
+                        registerTemporaryObject(parser.parse(originSql).get(0), dropActionList);
+                    }
+                    sb.append(rewriteSql).append(";\n");
+                }
+                return new RewrittenSql(sb.toString(), rewriteContext.getAppliedPolicies());
+            } finally {
+                dropActionList.forEach(Runnable::run);
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Register the table or view created by a script statement as a temporary object, unless it already exists just
+     * like executing the statement with IF NOT EXISTS
+     */
+    private void registerTemporaryObject(Operation operation, List<Runnable> dropActionList) {
+        CatalogManager catalogManager = tableEnv.getCatalogManager();
+        if (operation instanceof CreateTableASOperation) {
+            operation = ((CreateTableASOperation) operation).getCreateTableOperation();
+        }
+        if (operation instanceof CreateTableOperation) {
+            ObjectIdentifier identifier = ((CreateTableOperation) operation).getTableIdentifier();
+            if (!catalogManager.getTable(identifier).isPresent()) {
+                catalogManager.createTemporaryTable(((CreateTableOperation) operation).getCatalogTable(), identifier,
+                        false);
+                dropActionList.add(() -> catalogManager.dropTemporaryTable(identifier, true));
+            }
+        } else if (operation instanceof CreateViewOperation) {
+            ObjectIdentifier identifier = ((CreateViewOperation) operation).getViewIdentifier();
+            if (!catalogManager.getTable(identifier).isPresent()) {
+                catalogManager.createTemporaryTable(((CreateViewOperation) operation).getCatalogView(), identifier,
+                        false);
+                dropActionList.add(() -> catalogManager.dropTemporaryView(identifier, true));
+            }
+        }
+    }
+
+    /**
+     * Return the hit and miss statistics of the rewritten SQL cache
+     */
+    public CacheStats getRewriteCacheStats() {
+        return rewriteCache.stats();
+    }
+
+    public CacheStats getSchemaCacheStats() {
+        return schemaCache.stats();
+    }
+
+    /**
+     * Invalidate the cached schema of a table which has been changed outside the security context, the rewritten SQL
+     * are invalidated as well since they contain the columns of the masked tables
+     */
+    public void invalidateTable(ObjectIdentifier tableIdentifier) {
+        schemaCache.invalidate(tableIdentifier);
+        rewriteCache.invalidateAll();
+    }
+
+    /**
+     * Invalidate all cached schemas and rewritten SQL
+     */
+    public void invalidateAllTables() {
+        schemaCache.invalidateAll();
+        rewriteCache.invalidateAll();
+    }
+
+    /**
+     * Check whether any policy of the user applies to the tables referenced by the parsed sql
+     */
+    private boolean hasApplicablePolicy(RewriteContext rewriteContext, SqlNode sqlNode) {
+        long start = System.nanoTime();
+        boolean applicable = checkApplicablePolicy(rewriteContext, sqlNode);
+        rewriteMetrics.recordLatency(RewritePhase.POLICY_LOOKUP, System.nanoTime() - start);
+        return applicable;
+    }
+
+    private boolean checkApplicablePolicy(RewriteContext rewriteContext, SqlNode sqlNode) {
+        TableRefVisitor visitor = new TableRefVisitor();
+        sqlNode.accept(visitor);
+        if (!visitor.isComplete()) {
+            return true;
+        }
+        CatalogManager catalogManager = tableEnv.getCatalogManager();
+        for (List<String> tableNames : visitor.getTableNamesList()) {
+            if (tableNames.size() > 3) {
+                // let the validation report the invalid table name
+                return true;
+            }
+            ObjectIdentifier tableIdentifier = catalogManager.qualifyIdentifier(UnresolvedIdentifier.of(tableNames));
+            if (rewriteContext.getPolicySnapshot().hasPolicy(rewriteContext.getUsername(), tableIdentifier)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Parses a SQL expression into a {@link SqlNode}
      */
     public SqlNode parseExpression(String sqlExpression) {
-        return parser.parseExpression(sqlExpression);
+        return parserPool.execute(parser -> parser.parseExpression(sqlExpression));
     }
 
     /**
@@ -195,20 +676,115 @@ public class SecurityContext {
      * Execute the single sql directly, and return size rows
      */
     public List<Row> execute(String singleSql, int size) {
+        return fetchRows(executeIterator(singleSql), size);
+    }
+
+    /**
+     * Execute the single sql directly, and return an iterator that pulls the rows from the job as they are read
+     */
+    public ResultIterator executeIterator(String singleSql) {
         LOG.info("Execute SQL: {}", singleSql);
-        TableResult tableResult = tableEnv.executeSql(singleSql);
-        return fetchRows(tableResult.collect(), size);
+        TableResult tableResult = null;
+        // the table environment is not thread-safe, so the executions are serialized among themselves
+        executeLock.lock();
+        try {
+            Operation operation;
+            // queries and inserts only read the catalogs, the rewrites can go on while their jobs are submitted
+            catalogLock.readLock().lock();
+            try {
+                List<Operation> operations = tableEnv.getParser().parse(singleSql);
+                if (operations.size() != 1) {
+                    throw new TableException(
+                            "Unsupported SQL query! execute() only accepts a single SQL statement.");
+                }
+                operation = operations.get(0);
+                if (rewriteOnly && (operation instanceof QueryOperation || operation instanceof ModifyOperation)) {
+                    throw new TableException(String.format(
+                            "Queries and inserts cannot be executed when %s is enabled.",
+                            SecurityOptions.REWRITE_ONLY.key()));
+                }
+                if (!changesCatalog(operation)) {
+                    tableResult = tableEnv.executeInternal(operation);
+                }
+            } finally {
+                catalogLock.readLock().unlock();
+            }
+            if (tableResult == null) {
+                // the DDL and USE statements change the catalogs
+                catalogLock.writeLock().lock();
+                try {
+                    tableResult = tableEnv.executeInternal(operation);
+                    invalidateCache(operation);
+                } finally {
+                    catalogLock.writeLock().unlock();
+                }
+            }
+        } finally {
+            executeLock.unlock();
+        }
+        return new ResultIterator(tableResult.collect());
     }
 
     /**
-     * Execute the single sql with user rewrite policies
+     * Return false for the operations that only read the catalogs, CREATE TABLE AS SELECT is an insert that also
+     * creates a table
      */
-    private List<Row> executeWithRewrite(String username, String originSql, BinaryOperator<String> rewriteFunction,
-            int size) {
+    private static boolean changesCatalog(Operation operation) {
+        if (operation instanceof CreateTableASOperation) {
+            return true;
+        }
+        return !(operation instanceof QueryOperation || operation instanceof ModifyOperation
+                || operation instanceof ExplainOperation || operation instanceof ShowOperation
+                || operation instanceof DescribeTableOperation);
+    }
+
+    /**
+     * Invalidate the cached schemas and rewritten SQL that the executed operation makes stale
+     */
+    private void invalidateCache(Operation operation) {
+        if (operation instanceof AlterTableRenameOperation) {
+            invalidateTable(((AlterTableRenameOperation) operation).getTableIdentifier());
+            invalidateTable(((AlterTableRenameOperation) operation).getNewTableIdentifier());
+        } else if (operation instanceof AlterTableOperation) {
+            invalidateTable(((AlterTableOperation) operation).getTableIdentifier());
+        } else if (operation instanceof DropTableOperation) {
+            invalidateTable(((DropTableOperation) operation).getTableIdentifier());
+        } else if (operation instanceof CreateTableOperation) {
+            invalidateTable(((CreateTableOperation) operation).getTableIdentifier());
+        } else if (operation instanceof AlterViewRenameOperation) {
+            invalidateTable(((AlterViewRenameOperation) operation).getViewIdentifier());
+            invalidateTable(((AlterViewRenameOperation) operation).getNewViewIdentifier());
+        } else if (operation instanceof AlterViewOperation) {
+            invalidateTable(((AlterViewOperation) operation).getViewIdentifier());
+        } else if (operation instanceof DropViewOperation) {
+            invalidateTable(((DropViewOperation) operation).getViewIdentifier());
+        } else if (operation instanceof CreateViewOperation) {
+            invalidateTable(((CreateViewOperation) operation).getViewIdentifier());
+        } else if (operation instanceof DropDatabaseOperation || operation instanceof AlterDatabaseOperation
+                || operation instanceof DropCatalogOperation) {
+            invalidateAllTables();
+        } else if (operation instanceof UseOperation) {
+            // unqualified table names may refer to other tables now
+            rewriteCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Rewrite the single sql with user rewrite policies before executing it
+     */
+    private String rewriteForExecute(String username, String originSql, BinaryOperator<String> rewriteFunction) {
         LOG.info("Origin SQL: {}", originSql);
         String rewriteSql = rewriteFunction.apply(username, originSql);
         LOG.info("Rewrite SQL: {}", rewriteSql);
-        return execute(rewriteSql, size);
+        return rewriteSql;
+    }
+
+    /**
+     * Execute the single sql with user rewrite policies
+     */
+    private List<Row> executeWithRewrite(String username, String originSql, BinaryOperator<String> rewriteFunction,
+            int size) {
+        return execute(rewriteForExecute(username, originSql, rewriteFunction), size);
     }
 
     /**
@@ -232,41 +808,131 @@ public class SecurityContext {
         return executeWithRewrite(username, singleSql, this::mixedRewrite, size);
     }
 
-    private List<Row> fetchRows(Iterator<Row> iter, int size) {
-        List<Row> rowList = new ArrayList<>(size);
-        while (size > 0 && iter.hasNext()) {
-            rowList.add(iter.next());
-            size--;
+    /**
+     * Execute the single sql with user row-level filter policies, and return an iterator of the rows
+     */
+    public ResultIterator executeRowFilterIterator(String username, String singleSql) {
+        return executeIterator(rewriteForExecute(username, singleSql, this::rewriteRowFilter));
+    }
+
+    /**
+     * Execute the single sql with user data mask policies, and return an iterator of the rows
+     */
+    public ResultIterator executeDataMaskIterator(String username, String singleSql) {
+        return executeIterator(rewriteForExecute(username, singleSql, this::rewriteDataMask));
+    }
+
+    /**
+     * Execute the single sql with user row-level filter and data mask policies, and return an iterator of the rows
+     */
+    public ResultIterator mixedExecuteIterator(String username, String singleSql) {
+        return executeIterator(rewriteForExecute(username, singleSql, this::mixedRewrite));
+    }
+
+    /**
+     * Execute the single sql directly, and return a cursor that keeps the job running between the fetches of pages
+     */
+    public ResultCursor openCursor(String singleSql) {
+        return cursorManager.open(() -> executeIterator(singleSql));
+    }
+
+    /**
+     * Execute the single sql with user row-level filter policies, and return a cursor of the rows
+     */
+    public ResultCursor openRowFilterCursor(String username, String singleSql) {
+        return cursorManager.open(() -> executeRowFilterIterator(username, singleSql));
+    }
+
+    /**
+     * Execute the single sql with user data mask policies, and return a cursor of the rows
+     */
+    public ResultCursor openDataMaskCursor(String username, String singleSql) {
+        return cursorManager.open(() -> executeDataMaskIterator(username, singleSql));
+    }
+
+    /**
+     * Execute the single sql with user row-level filter and data mask policies, and return a cursor of the rows
+     */
+    public ResultCursor openMixedCursor(String username, String singleSql) {
+        return cursorManager.open(() -> mixedExecuteIterator(username, singleSql));
+    }
+
+    /**
+     * Return the open cursor by its id, so that the pages of a query can be fetched by different requests
+     */
+    public ResultCursor getCursor(String cursorId) {
+        return cursorManager.get(cursorId);
+    }
+
+    public int getOpenCursorCount() {
+        return cursorManager.getOpenCount();
+    }
+
+    /**
+     * Fetch at most size rows, then close the iterator to cancel the job of a query that has more rows
+     */
+    private List<Row> fetchRows(ResultIterator iter, int size) {
+        try (ResultIterator closeable = iter) {
+            List<Row> rowList = new ArrayList<>(size);
+            while (size > 0 && closeable.hasNext()) {
+                rowList.add(closeable.next());
+                size--;
+            }
+            return rowList;
         }
-        return rowList;
+    }
+
+    public RewriteMetrics getRewriteMetrics() {
+        return rewriteMetrics;
     }
 
     public PolicyManager getPolicyManager() {
         return policyManager;
     }
 
+    public boolean isNativeTransformerEnabled() {
+        return nativeTransformerEnabled;
+    }
+
+    public DataMaskTemplateCache getDataMaskTemplateCache() {
+        return dataMaskTemplateCache;
+    }
+
     private Catalog getCatalog(String catalogName) {
         return tableEnv.getCatalog(catalogName)
                 .orElseThrow(() -> new ValidationException(String.format("Catalog %s does not exist", catalogName)));
     }
 
+    /**
+     * Get the table schema from the schema cache, the catalog is only accessed on a cache miss
+     */
     public TableEntity getTable(ObjectIdentifier identifier) {
-        return getTable(identifier.getCatalogName(), identifier.getDatabaseName(), identifier.getObjectName());
+        long start = System.nanoTime();
+        TableEntity table = schemaCache.get(identifier, this::loadTable);
+        rewriteMetrics.recordLatency(RewritePhase.CATALOG_LOOKUP, System.nanoTime() - start);
+        return table;
     }
 
     public TableEntity getTable(String catalogName, String database, String tableName) {
+        return getTable(ObjectIdentifier.of(catalogName, database, tableName));
+    }
+
+    private TableEntity loadTable(ObjectIdentifier identifier) {
+        String catalogName = identifier.getCatalogName();
+        String database = identifier.getDatabaseName();
+        String tableName = identifier.getObjectName();
         ObjectPath objectPath = new ObjectPath(database, tableName);
         try {
             CatalogBaseTable table = getCatalog(catalogName).getTable(objectPath);
             Schema schema = table.getUnresolvedSchema();
-            LOG.info("table.schema: {}", schema);
+            LOG.debug("table.schema: {}", schema);
 
             List<ColumnEntity> columnList = schema.getColumns()
                     .stream()
                     .map(column -> new ColumnEntity(column.getName(), processColumnType(column)))
                     .collect(Collectors.toList());
 
-            return new TableEntity(ObjectIdentifier.of(catalogName, database, tableName), columnList);
+            return new TableEntity(identifier, columnList);
         } catch (TableNotExistException e) {
             throw new TableException(String.format(
                     "Cannot find table '%s' in the database %s of catalog %s .", tableName, database, catalogName));
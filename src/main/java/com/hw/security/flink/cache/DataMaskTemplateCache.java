@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.cache;
+
+import com.hw.security.flink.visitor.basic.DeepCopyShuttle;
+
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlDataTypeSpec;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.parser.SqlParserPos;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache of the parsed masking transformers and column types.
+ *
+ * <p>The transformers and column types come from a small set of data mask types and table schemas, so each of them is
+ * parsed only once, and the masking sub-queries are built from copies of the cached nodes without calling the parser.
+ *
+ * @author: HamaWhite
+ */
+public class DataMaskTemplateCache {
+
+    /**
+     * The placeholder of the masked column in the transformer, such as mask({col})
+     */
+    private static final String COLUMN_PLACEHOLDER = "{col}";
+
+    private final Map<String, SqlNode> transformerMap = new ConcurrentHashMap<>();
+
+    private final Map<String, SqlDataTypeSpec> dataTypeSpecMap = new ConcurrentHashMap<>();
+
+    /**
+     * Return a new transformer expression that masks the column
+     *
+     * @param transformer the transformer of data mask type, such as mask({col})
+     * @param columnName  the masked column
+     * @param parser      parse the expression when the transformer is not cached
+     */
+    public SqlNode getTransformer(String transformer, String columnName, Function<String, SqlNode> parser) {
+        SqlNode template = transformerMap.computeIfAbsent(transformer,
+                // quote the placeholder so that it is parsed as an identifier
+                key -> parser.apply(key.replace(COLUMN_PLACEHOLDER, "`" + COLUMN_PLACEHOLDER + "`")));
+        return template.accept(new ColumnReplacer(columnName));
+    }
+
+    /**
+     * Return the data type spec of the column type, such as STRING or DECIMAL(10, 2)
+     *
+     * @param columnType the column type of table schema
+     * @param parser     parse the expression when the column type is not cached
+     */
+    public SqlDataTypeSpec getDataTypeSpec(String columnType, Function<String, SqlNode> parser) {
+        return dataTypeSpecMap.computeIfAbsent(columnType,
+                key -> (SqlDataTypeSpec) ((SqlCall) parser.apply(String.format("CAST(NULL AS %s)", key)))
+                        .operand(1));
+    }
+
+    public long size() {
+        return (long) transformerMap.size() + dataTypeSpecMap.size();
+    }
+
+    /**
+     * Deep copy the template, and replace the placeholder with the masked column
+     */
+    private static class ColumnReplacer extends DeepCopyShuttle {
+
+        private final String columnName;
+
+        public ColumnReplacer(String columnName) {
+            this.columnName = columnName;
+        }
+
+        @Override
+        public SqlNode visit(SqlIdentifier identifier) {
+            if (identifier.isSimple() && COLUMN_PLACEHOLDER.equals(identifier.getSimple())) {
+                return new SqlIdentifier(columnName, SqlParserPos.ZERO);
+            }
+            return super.visit(identifier);
+        }
+    }
+}
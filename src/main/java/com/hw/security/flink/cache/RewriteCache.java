@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.hw.security.flink.enums.RewriteMode;
+import com.hw.security.flink.model.RewrittenSql;
+
+import org.apache.flink.util.Preconditions;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A bounded and thread-safe cache of rewritten SQL, along with the policies applied to it.
+ *
+ * <p>The key contains the policy version, so a cached SQL is never returned once a policy has been added or removed,
+ * and the stale entries are evicted by size or TTL.
+ *
+ * @author: HamaWhite
+ */
+public class RewriteCache {
+
+    private final Cache<RewriteKey, RewrittenSql> cache;
+
+    public RewriteCache(long maximumSize, Duration ttl) {
+        Preconditions.checkArgument(maximumSize >= 0, "the maximum size of rewrite cache must not be negative");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Return the cached rewritten SQL, or rewrite it by the loader and put the result into the cache
+     */
+    public RewrittenSql get(String username, String singleSql, RewriteMode mode, long policyVersion,
+            Supplier<RewrittenSql> loader) {
+        return get(new RewriteKey(username, normalize(singleSql), mode, policyVersion, false), loader);
+    }
+
+    /**
+     * Same as {@link #get}, but for a script of statements. A script is formatted differently from a single statement,
+     * so a one-statement script and the same statement are cached separately.
+     */
+    public RewrittenSql getScript(String username, String script, RewriteMode mode, long policyVersion,
+            Supplier<RewrittenSql> loader) {
+        return get(new RewriteKey(username, normalize(script), mode, policyVersion, true), loader);
+    }
+
+    private RewrittenSql get(RewriteKey key, Supplier<RewrittenSql> loader) {
+        RewrittenSql rewrittenSql = cache.getIfPresent(key);
+        if (rewrittenSql == null) {
+            rewrittenSql = loader.get();
+            cache.put(key, rewrittenSql);
+        }
+        return rewrittenSql;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Return the hit and miss counters of the cache
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Only the leading and trailing whitespace are removed, because the whitespace inside a string literal matters
+     */
+    private String normalize(String singleSql) {
+        return singleSql.trim();
+    }
+
+    @Data
+    private static class RewriteKey {
+
+        private final String username;
+
+        private final String singleSql;
+
+        private final RewriteMode mode;
+
+        private final long policyVersion;
+
+        private final boolean script;
+    }
+}
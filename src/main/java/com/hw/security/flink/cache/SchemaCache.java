@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.hw.security.flink.model.TableEntity;
+
+import org.apache.flink.table.catalog.ObjectIdentifier;
+import org.apache.flink.util.Preconditions;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A bounded and thread-safe cache of table schemas, which avoids a catalog round trip (such as a RPC to the Hive
+ * metastore) every time a masked table is referenced.
+ *
+ * <p>The entries are evicted by size or TTL, and are invalidated explicitly when the tables are changed through
+ * {@link com.hw.security.flink.SecurityContext}.
+ *
+ * @author: HamaWhite
+ */
+public class SchemaCache {
+
+    private final Cache<ObjectIdentifier, TableEntity> cache;
+
+    public SchemaCache(long maximumSize, Duration ttl) {
+        Preconditions.checkArgument(maximumSize >= 0, "the maximum size of schema cache must not be negative");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Return the cached table, or load it by the loader and put it into the cache
+     */
+    public TableEntity get(ObjectIdentifier tableIdentifier, Function<ObjectIdentifier, TableEntity> loader) {
+        TableEntity table = cache.getIfPresent(tableIdentifier);
+        if (table == null) {
+            table = loader.apply(tableIdentifier);
+            cache.put(tableIdentifier, table);
+        }
+        return table;
+    }
+
+    public void invalidate(ObjectIdentifier tableIdentifier) {
+        cache.invalidate(tableIdentifier);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Return the hit, miss and eviction counters of the cache
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.config;
+
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.MemorySize;
+
+import java.time.Duration;
+
+/**
+ * Config options of {@link com.hw.security.flink.SecurityContext}
+ *
+ * @author: HamaWhite
+ */
+public class SecurityOptions {
+
+    private SecurityOptions() {
+    }
+
+    public static final ConfigOption<Boolean> REWRITE_ONLY = ConfigOptions
+            .key("security.rewrite-only")
+            .booleanType()
+            .defaultValue(false)
+            .withDescription("Whether to only build the planner and catalogs needed to rewrite SQL. In this mode, the "
+                    + "statements that change the catalogs or modules can still be executed, but the queries and "
+                    + "inserts which need a Flink cluster cannot.");
+
+    public static final ConfigOption<Long> REWRITE_CACHE_MAX_SIZE = ConfigOptions
+            .key("security.rewrite-cache.max-size")
+            .longType()
+            .defaultValue(10000L)
+            .withDescription("The maximum number of rewritten SQL kept in the rewrite cache, 0 disables the cache.");
+
+    public static final ConfigOption<Duration> REWRITE_CACHE_TTL = ConfigOptions
+            .key("security.rewrite-cache.ttl")
+            .durationType()
+            .defaultValue(Duration.ofMinutes(10))
+            .withDescription("The time after which a rewritten SQL is removed from the rewrite cache.");
+
+    public static final ConfigOption<Long> SCHEMA_CACHE_MAX_SIZE = ConfigOptions
+            .key("security.schema-cache.max-size")
+            .longType()
+            .defaultValue(1000L)
+            .withDescription("The maximum number of table schemas kept in the schema cache, 0 disables the cache.");
+
+    public static final ConfigOption<Duration> SCHEMA_CACHE_TTL = ConfigOptions
+            .key("security.schema-cache.ttl")
+            .durationType()
+            .defaultValue(Duration.ofMinutes(10))
+            .withDescription("The time after which a table schema is removed from the schema cache, so that the "
+                    + "changes not made through the security context are picked up.");
+
+    public static final ConfigOption<Integer> PARSER_POOL_SIZE = ConfigOptions
+            .key("security.parser-pool.size")
+            .intType()
+            .defaultValue(Runtime.getRuntime().availableProcessors())
+            .withDescription("The maximum number of parsers, that is the maximum number of concurrent rewrites.");
+
+    public static final ConfigOption<Integer> BATCH_REWRITE_THREADS = ConfigOptions
+            .key("security.batch-rewrite.threads")
+            .intType()
+            .defaultValue(Runtime.getRuntime().availableProcessors())
+            .withDescription("The number of threads that rewrite the statements of a batch in parallel, the "
+                    + "concurrent rewrites are still bounded by the parser pool.");
+
+    public static final ConfigOption<Integer> ASYNC_REWRITE_THREADS = ConfigOptions
+            .key("security.async-rewrite.threads")
+            .intType()
+            .defaultValue(Runtime.getRuntime().availableProcessors())
+            .withDescription("The number of threads that run the asynchronous rewrites.");
+
+    public static final ConfigOption<Integer> ASYNC_REWRITE_QUEUE_CAPACITY = ConfigOptions
+            .key("security.async-rewrite.queue-capacity")
+            .intType()
+            .defaultValue(1000)
+            .withDescription("The maximum number of asynchronous rewrites waiting for a thread, the rewrites beyond "
+                    + "it are rejected.");
+
+    public static final ConfigOption<MemorySize> RESULT_PREFETCH_SIZE = ConfigOptions
+            .key("security.result.prefetch-size")
+            .memoryType()
+            .defaultValue(MemorySize.parse("2mb"))
+            .withDescription("The maximum size of the rows that the client fetches from a running query at a time, "
+                    + "which bounds the memory used by a result iterator.");
+
+    public static final ConfigOption<Integer> CURSOR_MAX_OPEN = ConfigOptions
+            .key("security.cursor.max-open")
+            .intType()
+            .defaultValue(16)
+            .withDescription("The maximum number of open cursors, each of which keeps a query job running.");
+
+    public static final ConfigOption<Duration> CURSOR_IDLE_TIMEOUT = ConfigOptions
+            .key("security.cursor.idle-timeout")
+            .durationType()
+            .defaultValue(Duration.ofMinutes(5))
+            .withDescription("The time after which a cursor without any fetch is closed and its job is cancelled.");
+
+    public static final ConfigOption<Boolean> MASK_FUNCTIONS_NATIVE = ConfigOptions
+            .key("security.mask-functions.native")
+            .booleanType()
+            .defaultValue(true)
+            .withDescription("Whether the mask functions of Hive are replaced by the native functions with the same "
+                    + "names and results, which mask the internal strings directly instead of converting every value "
+                    + "to a Java string and back.");
+
+    public static final ConfigOption<Boolean> DATA_MASK_NATIVE_TRANSFORMER = ConfigOptions
+            .key("security.data-mask.native-transformer")
+            .booleanType()
+            .defaultValue(false)
+            .withDescription("Whether the character string columns are masked by the native transformers of the data "
+                    + "mask types, which are built from the built-in functions and compiled into the generated "
+                    + "projection, rather than by calling the mask functions. The native transformers count the "
+                    + "characters in code points rather than in UTF-16 code units like Hive, so the strings with "
+                    + "supplementary characters such as emoji may be masked differently.");
+
+    public static final ConfigOption<Boolean> DATA_MASK_COLUMN_PRUNING = ConfigOptions
+            .key("security.data-mask.column-pruning")
+            .booleanType()
+            .defaultValue(true)
+            .withDescription("Whether the masking sub-queries only read the columns referenced by the statement, "
+                    + "so that the projection is still pushed down to the source and the masked columns that are "
+                    + "not read are not masked.");
+}
@@ -39,5 +39,14 @@ public class DataMaskType {
 
     private String transformer;
 
+    /**
+     * The transformer with the same result built from the built-in functions of Flink, which is compiled into the
+     * generated code of the projection. It is only used for the character string columns.
+     *
+     * <p>The built-in functions count the characters in code points, while the mask functions of Hive count them in
+     * UTF-16 code units, so the results differ for the strings with supplementary characters such as emoji.
+     */
+    private String nativeTransformer;
+
     private Map<String, String> dataMaskOptions;
 }
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.enums;
+
+/**
+ * The phases of a rewrite whose latencies are recorded. The catalog lookups happen while the visitors rewrite the
+ * tree, so the REWRITE phase includes the CATALOG_LOOKUP phase.
+ *
+ * @author: HamaWhite
+ */
+public enum RewritePhase {
+    // the whole rewrite, including the rewrites served from the cache
+    TOTAL,
+    // parse the sql into the abstract syntax tree
+    PARSE,
+    // look up the policies of the tables referenced by the sql
+    POLICY_LOOKUP,
+    // validate the abstract syntax tree
+    VALIDATE,
+    // look up the table schema in the schema cache or the catalog
+    CATALOG_LOOKUP,
+    // add row-level filter and column masking by the visitors
+    REWRITE,
+    // unparse the abstract syntax tree into the new sql
+    UNPARSE
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.function;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.annotation.InputGroup;
+import org.apache.flink.table.data.StringData;
+
+/**
+ * The base of the native mask functions with the Hive arguments (value, charCount, upper, lower, digit, other, number),
+ * where the subclass decides which charCount characters or digits are masked.
+ *
+ * @author: HamaWhite
+ */
+public abstract class AbstractMaskCountFunction extends AbstractMaskFunction {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int CHAR_COUNT_INDEX = 0;
+    private static final int MASK_CHAR_INDEX = 1;
+    private static final int NUMBER_INDEX = 5;
+
+    private static final int DEFAULT_CHAR_COUNT = 4;
+
+    @DataTypeHint(value = "STRING", bridgedTo = StringData.class)
+    public StringData eval(@DataTypeHint(value = "STRING", bridgedTo = StringData.class) StringData value,
+            @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : maskString(value, charCount(args), args, MASK_CHAR_INDEX);
+    }
+
+    public Long eval(Long value, @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : maskNumber(value, charCount(args), args, NUMBER_INDEX);
+    }
+
+    public Integer eval(Integer value, @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : (int) maskNumber(value, charCount(args), args, NUMBER_INDEX);
+    }
+
+    public Short eval(Short value, @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : (short) maskNumber(value, charCount(args), args, NUMBER_INDEX);
+    }
+
+    public Byte eval(Byte value, @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : (byte) maskNumber(value, charCount(args), args, NUMBER_INDEX);
+    }
+
+    private static int charCount(Object[] args) {
+        return Math.max(intArg(args, CHAR_COUNT_INDEX, DEFAULT_CHAR_COUNT), 0);
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.function;
+
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.data.binary.BinarySegmentUtils;
+import org.apache.flink.table.data.binary.BinaryStringData;
+import org.apache.flink.table.functions.ScalarFunction;
+
+import java.util.Arrays;
+
+/**
+ * The base of the built-in mask functions, which follow the semantics of the mask functions of Hive. The strings are
+ * masked on their UTF-8 bytes directly with reusable buffers, so that no Java string is decoded or encoded per row,
+ * and the characters are counted in UTF-16 code units just like Hive.
+ *
+ * <p>The optional arguments are the same as those of Hive, and are resolved for each row without any allocation, since
+ * they are literals in practice. A mask character is either a string whose first character is used or -1 to keep the
+ * original character.
+ *
+ * @author: HamaWhite
+ */
+public abstract class AbstractMaskFunction extends ScalarFunction {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int UNMASKED_VAL = -1;
+
+    protected static final int MASKED_UPPERCASE = 'X';
+    protected static final int MASKED_LOWERCASE = 'x';
+    protected static final int MASKED_DIGIT = 'n';
+    protected static final int MASKED_OTHER_CHAR = UNMASKED_VAL;
+    protected static final int MASKED_NUMBER = 1;
+
+    /**
+     * The longest UTF-8 encoding of a mask character for one UTF-16 code unit
+     */
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private transient byte[] inputBuffer;
+
+    private transient byte[] outputBuffer;
+
+    /**
+     * Return the first masked character, the characters in [maskStart, maskEnd) are masked
+     */
+    protected abstract int maskStart(int length, int charCount);
+
+    /**
+     * Return the end of the masked characters, exclusive
+     */
+    protected abstract int maskEnd(int length, int charCount);
+
+    /**
+     * Mask the string with the mask characters upper, lower, digit and other starting at args[argIndex]
+     */
+    protected StringData maskString(StringData value, int charCount, Object[] args, int argIndex) {
+        BinaryStringData str = (BinaryStringData) value;
+        int sizeInBytes = str.getSizeInBytes();
+        byte[] input = ensureInputBuffer(sizeInBytes);
+        BinarySegmentUtils.copyToBytes(str.getSegments(), str.getOffset(), input, 0, sizeInBytes);
+
+        int length = countChars(input, sizeInBytes);
+        int start = Math.max(maskStart(length, charCount), 0);
+        int end = Math.min(maskEnd(length, charCount), length);
+        if (start >= end) {
+            return value;
+        }
+        int upper = charArg(args, argIndex, MASKED_UPPERCASE);
+        int lower = charArg(args, argIndex + 1, MASKED_LOWERCASE);
+        int digit = charArg(args, argIndex + 2, MASKED_DIGIT);
+        int other = charArg(args, argIndex + 3, MASKED_OTHER_CHAR);
+
+        byte[] output = ensureOutputBuffer(sizeInBytes * MAX_BYTES_PER_CHAR);
+        int outputSize = 0;
+        int index = 0;
+        for (int pos = 0; pos < sizeInBytes;) {
+            byte b = input[pos];
+            boolean masked = index >= start && index < end;
+            if (b >= 0) {
+                // the fast path of ASCII
+                int maskedChar = masked ? maskChar(b, upper, lower, digit, other) : b;
+                if (maskedChar < 0x80) {
+                    output[outputSize++] = (byte) maskedChar;
+                } else {
+                    outputSize = writeCodePoint(output, outputSize, maskedChar);
+                }
+                pos++;
+                index++;
+                continue;
+            }
+            int numBytes = numBytesForFirstByte(b);
+            if (pos + numBytes > sizeInBytes) {
+                // copy the truncated sequence as it is
+                numBytes = 1;
+            }
+            if (numBytes == 4) {
+                // a supplementary character is two surrogates for Hive, which are neither letters nor digits
+                if (masked && other != UNMASKED_VAL) {
+                    outputSize = writeCodePoint(output, outputSize, other);
+                    outputSize = writeCodePoint(output, outputSize, other);
+                } else {
+                    outputSize = copyBytes(input, pos, output, outputSize, numBytes);
+                }
+                index += 2;
+            } else {
+                int codePoint = decode(input, pos, numBytes);
+                int maskedChar = masked ? maskChar(codePoint, upper, lower, digit, other) : codePoint;
+                if (maskedChar == codePoint) {
+                    outputSize = copyBytes(input, pos, output, outputSize, numBytes);
+                } else {
+                    outputSize = writeCodePoint(output, outputSize, maskedChar);
+                }
+                index++;
+            }
+            pos += numBytes;
+        }
+        return BinaryStringData.fromBytes(Arrays.copyOf(output, outputSize));
+    }
+
+    /**
+     * Replace the digits of the number with the number argument at args[argIndex], the digits are counted from the
+     * most significant one
+     */
+    protected long maskNumber(long value, int charCount, Object[] args, int argIndex) {
+        long abs = value < 0 ? -value : value;
+        int digitCount = 0;
+        for (long remain = abs; remain != 0; remain /= 10) {
+            digitCount++;
+        }
+        int start = Math.max(maskStart(digitCount, charCount), 0);
+        int end = Math.min(maskEnd(digitCount, charCount), digitCount);
+        if (start >= end) {
+            return value;
+        }
+        int number = intArg(args, argIndex, MASKED_NUMBER);
+        if (number < 0 || number > 9) {
+            number = MASKED_NUMBER;
+        }
+        long result = 0;
+        long weight = 1;
+        for (int index = digitCount - 1; index >= 0; index--) {
+            long digit = index >= start && index < end ? number : abs % 10;
+            result += digit * weight;
+            abs /= 10;
+            weight *= 10;
+        }
+        return value < 0 ? -result : result;
+    }
+
+    private static int maskChar(int codePoint, int upper, int lower, int digit, int other) {
+        int masked;
+        if (codePoint < 0x80) {
+            if (codePoint >= 'A' && codePoint <= 'Z') {
+                masked = upper;
+            } else if (codePoint >= 'a' && codePoint <= 'z') {
+                masked = lower;
+            } else if (codePoint >= '0' && codePoint <= '9') {
+                masked = digit;
+            } else {
+                masked = other;
+            }
+        } else {
+            switch (Character.getType(codePoint)) {
+                case Character.UPPERCASE_LETTER:
+                    masked = upper;
+                    break;
+                case Character.LOWERCASE_LETTER:
+                    masked = lower;
+                    break;
+                case Character.DECIMAL_DIGIT_NUMBER:
+                    masked = digit;
+                    break;
+                default:
+                    masked = other;
+            }
+        }
+        return masked == UNMASKED_VAL ? codePoint : masked;
+    }
+
+    /**
+     * The mask character of Hive, either the first character of a string or a number such as -1
+     */
+    protected static int charArg(Object[] args, int index, int defaultValue) {
+        Object arg = index < args.length ? args[index] : null;
+        if (arg instanceof Number) {
+            return ((Number) arg).intValue();
+        } else if (arg instanceof CharSequence && ((CharSequence) arg).length() > 0) {
+            return ((CharSequence) arg).charAt(0);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * The integer argument of Hive, either a number or a string of the number
+     */
+    protected static int intArg(Object[] args, int index, int defaultValue) {
+        Object arg = index < args.length ? args[index] : null;
+        if (arg instanceof Number) {
+            return ((Number) arg).intValue();
+        } else if (arg instanceof CharSequence) {
+            return Integer.parseInt(arg.toString());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Count the UTF-16 code units of the UTF-8 bytes
+     */
+    private static int countChars(byte[] bytes, int sizeInBytes) {
+        int length = 0;
+        for (int pos = 0; pos < sizeInBytes; pos++) {
+            int b = bytes[pos];
+            if ((b & 0xC0) != 0x80) {
+                length += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+        return length;
+    }
+
+    private static int numBytesForFirstByte(byte b) {
+        if (b >= 0) {
+            return 1;
+        } else if ((b & 0xE0) == 0xC0) {
+            return 2;
+        } else if ((b & 0xF0) == 0xE0) {
+            return 3;
+        } else if ((b & 0xF8) == 0xF0) {
+            return 4;
+        }
+        // an invalid first byte is copied as it is
+        return 1;
+    }
+
+    private static int decode(byte[] bytes, int pos, int numBytes) {
+        switch (numBytes) {
+            case 2:
+                return ((bytes[pos] & 0x1F) << 6) | (bytes[pos + 1] & 0x3F);
+            case 3:
+                return ((bytes[pos] & 0x0F) << 12) | ((bytes[pos + 1] & 0x3F) << 6) | (bytes[pos + 2] & 0x3F);
+            default:
+                return bytes[pos] & 0xFF;
+        }
+    }
+
+    private static int copyBytes(byte[] input, int pos, byte[] output, int outputSize, int numBytes) {
+        for (int i = 0; i < numBytes; i++) {
+            output[outputSize++] = input[pos + i];
+        }
+        return outputSize;
+    }
+
+    private static int writeCodePoint(byte[] bytes, int pos, int codePoint) {
+        if (codePoint < 0x80) {
+            bytes[pos++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            bytes[pos++] = (byte) (0xC0 | (codePoint >> 6));
+            bytes[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            bytes[pos++] = (byte) (0xE0 | (codePoint >> 12));
+            bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            bytes[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            bytes[pos++] = (byte) (0xF0 | (codePoint >> 18));
+            bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            bytes[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return pos;
+    }
+
+    private byte[] ensureInputBuffer(int size) {
+        if (inputBuffer == null || inputBuffer.length < size) {
+            inputBuffer = new byte[size];
+        }
+        return inputBuffer;
+    }
+
+    private byte[] ensureOutputBuffer(int size) {
+        if (outputBuffer == null || outputBuffer.length < size) {
+            outputBuffer = new byte[size];
+        }
+        return outputBuffer;
+    }
+}
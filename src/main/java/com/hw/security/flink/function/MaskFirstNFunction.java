@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.function;
+
+/**
+ * The native version of the Hive function mask_first_n, which masks the first charCount characters.
+ *
+ * @author: HamaWhite
+ */
+public class MaskFirstNFunction extends AbstractMaskCountFunction {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String NAME = "mask_first_n";
+
+    @Override
+    protected int maskStart(int length, int charCount) {
+        return 0;
+    }
+
+    @Override
+    protected int maskEnd(int length, int charCount) {
+        return charCount;
+    }
+}
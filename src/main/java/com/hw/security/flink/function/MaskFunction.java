@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.function;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.annotation.InputGroup;
+import org.apache.flink.table.data.StringData;
+
+import java.time.LocalDate;
+
+/**
+ * The native version of the Hive function mask(value, upper, lower, digit, other, number, day, month, year), which
+ * masks all the characters of a string, all the digits of a number, and the day, month and year of a date.
+ *
+ * @author: HamaWhite
+ */
+public class MaskFunction extends AbstractMaskFunction {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String NAME = "mask";
+
+    private static final int NUMBER_INDEX = 4;
+    private static final int DAY_INDEX = 5;
+    private static final int MONTH_INDEX = 6;
+    private static final int YEAR_INDEX = 7;
+
+    private static final int MASKED_DAY = 1;
+    private static final int MASKED_MONTH = 0;
+    private static final int MASKED_YEAR = 0;
+
+    @DataTypeHint(value = "STRING", bridgedTo = StringData.class)
+    public StringData eval(@DataTypeHint(value = "STRING", bridgedTo = StringData.class) StringData value,
+            @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : maskString(value, 0, args, 0);
+    }
+
+    public Long eval(Long value, @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : maskNumber(value, 0, args, NUMBER_INDEX);
+    }
+
+    public Integer eval(Integer value, @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : (int) maskNumber(value, 0, args, NUMBER_INDEX);
+    }
+
+    public Short eval(Short value, @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : (short) maskNumber(value, 0, args, NUMBER_INDEX);
+    }
+
+    public Byte eval(Byte value, @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        return value == null ? null : (byte) maskNumber(value, 0, args, NUMBER_INDEX);
+    }
+
+    public LocalDate eval(LocalDate value, @DataTypeHint(inputGroup = InputGroup.ANY) Object... args) {
+        if (value == null) {
+            return null;
+        }
+        int day = intArg(args, DAY_INDEX, MASKED_DAY);
+        if (day != UNMASKED_VAL && (day < 1 || day > 31)) {
+            day = MASKED_DAY;
+        }
+        int month = intArg(args, MONTH_INDEX, MASKED_MONTH);
+        if (month != UNMASKED_VAL && (month < 0 || month > 11)) {
+            month = MASKED_MONTH;
+        }
+        int year = intArg(args, YEAR_INDEX, MASKED_YEAR);
+
+        // a day that does not exist in the month fails with DateTimeException, just like Hive
+        return LocalDate.of(year == UNMASKED_VAL ? value.getYear() : year,
+                month == UNMASKED_VAL ? value.getMonthValue() : month + 1,
+                day == UNMASKED_VAL ? value.getDayOfMonth() : day);
+    }
+
+    @Override
+    protected int maskStart(int length, int charCount) {
+        return 0;
+    }
+
+    @Override
+    protected int maskEnd(int length, int charCount) {
+        return length;
+    }
+}
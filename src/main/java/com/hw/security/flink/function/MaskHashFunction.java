@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.function;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.data.binary.BinarySegmentUtils;
+import org.apache.flink.table.data.binary.BinaryStringData;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.ScalarFunction;
+
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The native version of the Hive function mask_hash(value), which returns the hex SHA-256 hash of a string. The
+ * digest and the input buffer are reused across rows. Like Hive, the numbers, dates and timestamps are masked to null
+ * of the same type.
+ *
+ * @author: HamaWhite
+ */
+public class MaskHashFunction extends ScalarFunction {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String NAME = "mask_hash";
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+    private transient MessageDigest digest;
+
+    private transient byte[] inputBuffer;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        digest = MessageDigest.getInstance("SHA-256");
+    }
+
+    @DataTypeHint(value = "STRING", bridgedTo = StringData.class)
+    public StringData eval(@DataTypeHint(value = "STRING", bridgedTo = StringData.class) StringData value)
+            throws Exception {
+        if (value == null) {
+            return null;
+        }
+        if (digest == null) {
+            open(null);
+        }
+        BinaryStringData str = (BinaryStringData) value;
+        int sizeInBytes = str.getSizeInBytes();
+        if (inputBuffer == null || inputBuffer.length < sizeInBytes) {
+            inputBuffer = new byte[sizeInBytes];
+        }
+        BinarySegmentUtils.copyToBytes(str.getSegments(), str.getOffset(), inputBuffer, 0, sizeInBytes);
+        digest.update(inputBuffer, 0, sizeInBytes);
+
+        byte[] hash = digest.digest();
+        byte[] hex = new byte[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0x0F];
+        }
+        return BinaryStringData.fromBytes(hex);
+    }
+
+    public Long eval(Long value) {
+        return null;
+    }
+
+    public Integer eval(Integer value) {
+        return null;
+    }
+
+    public Short eval(Short value) {
+        return null;
+    }
+
+    public Byte eval(Byte value) {
+        return null;
+    }
+
+    public LocalDate eval(LocalDate value) {
+        return null;
+    }
+
+    public LocalDateTime eval(@DataTypeHint("TIMESTAMP(9)") LocalDateTime value) {
+        return null;
+    }
+}
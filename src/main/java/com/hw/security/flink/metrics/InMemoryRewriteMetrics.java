@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.metrics;
+
+import com.hw.security.flink.enums.RewritePhase;
+import com.hw.security.flink.exception.CustomException;
+
+import org.apache.flink.metrics.HistogramStatistics;
+import org.apache.flink.runtime.metrics.DescriptiveStatisticsHistogram;
+import org.apache.flink.table.catalog.ObjectIdentifier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The default rewrite metrics, which keep a histogram of the latest latencies per phase and the counters of the row
+ * filters and column masks per user and per table. They can be read directly or registered as a JMX MBean.
+ *
+ * @author: HamaWhite
+ */
+public class InMemoryRewriteMetrics implements RewriteMetrics, InMemoryRewriteMetricsMXBean {
+
+    private static final int DEFAULT_WINDOW_SIZE = 10000;
+
+    private static final double NANOS_PER_MILLI = 1_000_000D;
+
+    private final Map<RewritePhase, DescriptiveStatisticsHistogram> latencyMap = new EnumMap<>(RewritePhase.class);
+
+    private final Map<String, LongAdder> rowFilterUserMap = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> rowFilterTableMap = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> dataMaskUserMap = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> dataMaskTableMap = new ConcurrentHashMap<>();
+
+    public InMemoryRewriteMetrics() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize The number of the latest latencies kept per phase to compute the quantiles
+     */
+    public InMemoryRewriteMetrics(int windowSize) {
+        for (RewritePhase phase : RewritePhase.values()) {
+            latencyMap.put(phase, new DescriptiveStatisticsHistogram(windowSize));
+        }
+    }
+
+    @Override
+    public void recordLatency(RewritePhase phase, long nanos) {
+        latencyMap.get(phase).update(nanos);
+    }
+
+    @Override
+    public void countRowFilter(String username, ObjectIdentifier tableIdentifier) {
+        increment(rowFilterUserMap, username);
+        increment(rowFilterTableMap, tableIdentifier.asSummaryString());
+    }
+
+    @Override
+    public void countDataMask(String username, ObjectIdentifier tableIdentifier, String columnName) {
+        increment(dataMaskUserMap, username);
+        increment(dataMaskTableMap, tableIdentifier.asSummaryString());
+    }
+
+    /**
+     * Return the statistics of the latest latencies of the phase in nanoseconds
+     */
+    public HistogramStatistics getLatencyStatistics(RewritePhase phase) {
+        return latencyMap.get(phase).getStatistics();
+    }
+
+    @Override
+    public Map<String, Long> getLatencyCount() {
+        Map<String, Long> resultMap = new TreeMap<>();
+        latencyMap.forEach((phase, histogram) -> resultMap.put(phase.name(), histogram.getCount()));
+        return resultMap;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50Millis() {
+        return toMillis(statistics -> statistics.getQuantile(0.5));
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Millis() {
+        return toMillis(statistics -> statistics.getQuantile(0.99));
+    }
+
+    @Override
+    public Map<String, Long> getRowFilterCountByUser() {
+        return snapshot(rowFilterUserMap);
+    }
+
+    @Override
+    public Map<String, Long> getRowFilterCountByTable() {
+        return snapshot(rowFilterTableMap);
+    }
+
+    @Override
+    public Map<String, Long> getDataMaskCountByUser() {
+        return snapshot(dataMaskUserMap);
+    }
+
+    @Override
+    public Map<String, Long> getDataMaskCountByTable() {
+        return snapshot(dataMaskTableMap);
+    }
+
+    /**
+     * Register these metrics to the platform MBean server
+     */
+    public void registerMBean(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (JMException e) {
+            throw new CustomException(String.format("Failed to register the rewrite metrics as %s", objectName), e);
+        }
+    }
+
+    public void unregisterMBean(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new CustomException(String.format("Failed to unregister the rewrite metrics %s", objectName), e);
+        }
+    }
+
+    private Map<String, Double> toMillis(ToDoubleFunction<HistogramStatistics> function) {
+        Map<String, Double> resultMap = new TreeMap<>();
+        latencyMap.forEach((phase, histogram) -> resultMap.put(phase.name(),
+                function.applyAsDouble(histogram.getStatistics()) / NANOS_PER_MILLI));
+        return resultMap;
+    }
+
+    private void increment(Map<String, LongAdder> counterMap, String key) {
+        counterMap.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    private Map<String, Long> snapshot(Map<String, LongAdder> counterMap) {
+        Map<String, Long> resultMap = new TreeMap<>();
+        counterMap.forEach((key, counter) -> resultMap.put(key, counter.sum()));
+        return resultMap;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link InMemoryRewriteMetrics}, the latencies are in milliseconds and keyed by the rewrite phase.
+ *
+ * @author: HamaWhite
+ */
+public interface InMemoryRewriteMetricsMXBean {
+
+    Map<String, Long> getLatencyCount();
+
+    Map<String, Double> getLatencyP50Millis();
+
+    Map<String, Double> getLatencyP99Millis();
+
+    Map<String, Long> getRowFilterCountByUser();
+
+    Map<String, Long> getRowFilterCountByTable();
+
+    Map<String, Long> getDataMaskCountByUser();
+
+    Map<String, Long> getDataMaskCountByTable();
+}
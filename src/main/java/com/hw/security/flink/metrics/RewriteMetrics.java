@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.metrics;
+
+import com.hw.security.flink.enums.RewritePhase;
+
+import org.apache.flink.table.catalog.ObjectIdentifier;
+
+/**
+ * The metrics of the rewrites of a security context. An implementation can forward them to the metric system of the
+ * application, it is called by the rewriting threads, so it must be thread-safe and cheap.
+ *
+ * <p>The row-level filters and column masks are counted by every rewrite, including the rewrites served from the
+ * rewrite cache.
+ *
+ * @author: HamaWhite
+ */
+public interface RewriteMetrics {
+
+    /**
+     * Record the latency of a phase of a rewrite
+     */
+    void recordLatency(RewritePhase phase, long nanos);
+
+    /**
+     * Count a row-level filter added to the table for the user
+     */
+    void countRowFilter(String username, ObjectIdentifier tableIdentifier);
+
+    /**
+     * Count a masked column of the table for the user
+     */
+    void countDataMask(String username, ObjectIdentifier tableIdentifier, String columnName);
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.model;
+
+import com.hw.security.flink.metrics.RewriteMetrics;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.table.catalog.ObjectIdentifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The row-level filters and column masks applied by a rewrite. They are cached along with the rewritten SQL, so that
+ * they are counted by every rewrite, whether it is served from the rewrite cache or not.
+ *
+ * <p>It is filled by the single thread of the rewrite, and only read once the rewrite is done.
+ *
+ * @author: HamaWhite
+ */
+public class AppliedPolicies {
+
+    /**
+     * The filtered tables, a table is listed once per reference of it
+     */
+    private final List<ObjectIdentifier> rowFilterList = new ArrayList<>();
+
+    /**
+     * The masked columns of the tables, a column is listed once per reference of its table
+     */
+    private final List<Tuple2<ObjectIdentifier, String>> dataMaskList = new ArrayList<>();
+
+    public void addRowFilter(ObjectIdentifier tableIdentifier) {
+        rowFilterList.add(tableIdentifier);
+    }
+
+    public void addDataMask(ObjectIdentifier tableIdentifier, String columnName) {
+        dataMaskList.add(Tuple2.of(tableIdentifier, columnName));
+    }
+
+    /**
+     * Count the applied policies of the user in the metrics
+     */
+    public void count(String username, RewriteMetrics rewriteMetrics) {
+        rowFilterList.forEach(tableIdentifier -> rewriteMetrics.countRowFilter(username, tableIdentifier));
+        dataMaskList.forEach(column -> rewriteMetrics.countDataMask(username, column.f0, column.f1));
+    }
+}
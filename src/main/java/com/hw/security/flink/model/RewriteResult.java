@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The result of rewriting one statement of a batch, which holds either the rewritten SQL or the error.
+ *
+ * @author: HamaWhite
+ */
+@Data
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class RewriteResult {
+
+    private final String originSql;
+
+    private final String rewriteSql;
+
+    private final Throwable error;
+
+    public static RewriteResult success(String originSql, String rewriteSql) {
+        return new RewriteResult(originSql, rewriteSql, null);
+    }
+
+    public static RewriteResult failure(String originSql, Throwable error) {
+        return new RewriteResult(originSql, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
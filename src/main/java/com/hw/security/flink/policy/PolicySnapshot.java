@@ -0,0 +1,358 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.policy;
+
+import org.apache.flink.table.catalog.ObjectIdentifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An immutable and versioned view of all row-level filter and data mask policies.
+ *
+ * <p>Every change builds a new snapshot with a larger version, which only copies the maps on the path of the changed
+ * policy and shares the rest with the previous snapshot. So a snapshot can be read by any number of threads without
+ * locking, and a rewrite that pins one snapshot sees consistent row filter and mask decisions.
+ *
+ * @author: HamaWhite
+ */
+public final class PolicySnapshot {
+
+    private static final PolicySnapshot EMPTY =
+            new PolicySnapshot(0L, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+
+    private final long version;
+
+    /**
+     * username -> table identifier -> row-level filter policies, in the order they were added
+     */
+    private final Map<String, Map<ObjectIdentifier, List<RowFilterPolicy>>> rowFilterPolicyIndex;
+
+    /**
+     * username -> table identifier -> column name -> data mask policies, in the order they were added
+     */
+    private final Map<String, Map<ObjectIdentifier, Map<String, List<DataMaskPolicy>>>> dataMaskPolicyIndex;
+
+    /**
+     * username -> table identifier -> column name -> data mask condition of the first policy, derived from
+     * dataMaskPolicyIndex so that the bulk lookup of a table does not allocate
+     */
+    private final Map<String, Map<ObjectIdentifier, Map<String, String>>> dataMaskConditionIndex;
+
+    private PolicySnapshot(long version,
+            Map<String, Map<ObjectIdentifier, List<RowFilterPolicy>>> rowFilterPolicyIndex,
+            Map<String, Map<ObjectIdentifier, Map<String, List<DataMaskPolicy>>>> dataMaskPolicyIndex,
+            Map<String, Map<ObjectIdentifier, Map<String, String>>> dataMaskConditionIndex) {
+        this.version = version;
+        this.rowFilterPolicyIndex = rowFilterPolicyIndex;
+        this.dataMaskPolicyIndex = dataMaskPolicyIndex;
+        this.dataMaskConditionIndex = dataMaskConditionIndex;
+    }
+
+    public static PolicySnapshot empty() {
+        return EMPTY;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Return true if the user has any row-level filter or data mask policy
+     */
+    public boolean hasPolicy(String username) {
+        return rowFilterPolicyIndex.containsKey(username) || dataMaskConditionIndex.containsKey(username);
+    }
+
+    /**
+     * Return true if the user has any row-level filter or data mask policy on the table
+     */
+    public boolean hasPolicy(String username, ObjectIdentifier tableIdentifier) {
+        return rowFilterPolicyIndex.getOrDefault(username, Collections.emptyMap()).containsKey(tableIdentifier)
+                || dataMaskConditionIndex.getOrDefault(username, Collections.emptyMap()).containsKey(tableIdentifier);
+    }
+
+    public Optional<String> getRowFilterCondition(String username, ObjectIdentifier tableIdentifier) {
+        List<RowFilterPolicy> policyList = rowFilterPolicyIndex
+                .getOrDefault(username, Collections.emptyMap())
+                .get(tableIdentifier);
+
+        if (policyList == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(policyList.get(0).getCondition());
+    }
+
+    public Optional<String> getDataMaskCondition(String username, ObjectIdentifier tableIdentifier,
+            String columnName) {
+        return Optional.ofNullable(getDataMaskConditions(username, tableIdentifier).get(columnName));
+    }
+
+    /**
+     * Get the data mask conditions of all columns of a table in one lookup.
+     *
+     * @return column name -> data mask condition, or an immutable empty map if no column of the table is masked
+     */
+    public Map<String, String> getDataMaskConditions(String username, ObjectIdentifier tableIdentifier) {
+        return dataMaskConditionIndex
+                .getOrDefault(username, Collections.emptyMap())
+                .getOrDefault(tableIdentifier, Collections.emptyMap());
+    }
+
+    /**
+     * Return a new snapshot with the policy added
+     */
+    public PolicySnapshot withPolicy(RowFilterPolicy policy) {
+        String username = policy.getUsername();
+        ObjectIdentifier tableIdentifier = toObjectIdentifier(policy);
+
+        Map<ObjectIdentifier, List<RowFilterPolicy>> tableMap =
+                rowFilterPolicyIndex.getOrDefault(username, Collections.emptyMap());
+        List<RowFilterPolicy> policyList = tableMap.getOrDefault(tableIdentifier, Collections.emptyList());
+
+        tableMap = copyAndPut(tableMap, tableIdentifier, copyAndAdd(policyList, policy));
+        return new PolicySnapshot(version + 1,
+                copyAndPut(rowFilterPolicyIndex, username, tableMap),
+                dataMaskPolicyIndex,
+                dataMaskConditionIndex);
+    }
+
+    /**
+     * Return a new snapshot with the first policy equal to the given one removed, or this snapshot if there is no
+     * such policy
+     */
+    public PolicySnapshot withoutPolicy(RowFilterPolicy policy) {
+        String username = policy.getUsername();
+        ObjectIdentifier tableIdentifier = toObjectIdentifier(policy);
+
+        Map<ObjectIdentifier, List<RowFilterPolicy>> tableMap =
+                rowFilterPolicyIndex.getOrDefault(username, Collections.emptyMap());
+        List<RowFilterPolicy> policyList = tableMap.getOrDefault(tableIdentifier, Collections.emptyList());
+        if (!policyList.contains(policy)) {
+            return this;
+        }
+
+        tableMap = copyAndPut(tableMap, tableIdentifier, copyAndRemove(policyList, policy));
+        return new PolicySnapshot(version + 1,
+                copyAndPut(rowFilterPolicyIndex, username, tableMap),
+                dataMaskPolicyIndex,
+                dataMaskConditionIndex);
+    }
+
+    /**
+     * Return a new snapshot with the policy added
+     */
+    public PolicySnapshot withPolicy(DataMaskPolicy policy) {
+        String username = policy.getUsername();
+        ObjectIdentifier tableIdentifier = toObjectIdentifier(policy);
+
+        Map<ObjectIdentifier, Map<String, List<DataMaskPolicy>>> tableMap =
+                dataMaskPolicyIndex.getOrDefault(username, Collections.emptyMap());
+        Map<String, List<DataMaskPolicy>> columnMap =
+                tableMap.getOrDefault(tableIdentifier, Collections.emptyMap());
+        List<DataMaskPolicy> policyList = columnMap.getOrDefault(policy.getColumnName(), Collections.emptyList());
+
+        columnMap = copyAndPut(columnMap, policy.getColumnName(), copyAndAdd(policyList, policy));
+        return withDataMaskColumnMap(username, tableIdentifier, tableMap, columnMap);
+    }
+
+    /**
+     * Return a new snapshot with the first policy equal to the given one removed, or this snapshot if there is no
+     * such policy
+     */
+    public PolicySnapshot withoutPolicy(DataMaskPolicy policy) {
+        String username = policy.getUsername();
+        ObjectIdentifier tableIdentifier = toObjectIdentifier(policy);
+
+        Map<ObjectIdentifier, Map<String, List<DataMaskPolicy>>> tableMap =
+                dataMaskPolicyIndex.getOrDefault(username, Collections.emptyMap());
+        Map<String, List<DataMaskPolicy>> columnMap =
+                tableMap.getOrDefault(tableIdentifier, Collections.emptyMap());
+        List<DataMaskPolicy> policyList = columnMap.getOrDefault(policy.getColumnName(), Collections.emptyList());
+        if (!policyList.contains(policy)) {
+            return this;
+        }
+
+        columnMap = copyAndPut(columnMap, policy.getColumnName(), copyAndRemove(policyList, policy));
+        return withDataMaskColumnMap(username, tableIdentifier, tableMap, columnMap);
+    }
+
+    private PolicySnapshot withDataMaskColumnMap(String username, ObjectIdentifier tableIdentifier,
+            Map<ObjectIdentifier, Map<String, List<DataMaskPolicy>>> tableMap,
+            Map<String, List<DataMaskPolicy>> columnMap) {
+        Map<String, String> conditionMap = new HashMap<>(columnMap.size() * 4 / 3 + 1);
+        columnMap.forEach((columnName, policyList) -> conditionMap.put(columnName, policyList.get(0).getCondition()));
+
+        Map<ObjectIdentifier, Map<String, String>> conditionTableMap = copyAndPut(
+                dataMaskConditionIndex.getOrDefault(username, Collections.emptyMap()),
+                tableIdentifier,
+                conditionMap.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(conditionMap));
+
+        return new PolicySnapshot(version + 1,
+                rowFilterPolicyIndex,
+                copyAndPut(dataMaskPolicyIndex, username, copyAndPut(tableMap, tableIdentifier, columnMap)),
+                copyAndPut(dataMaskConditionIndex, username, conditionTableMap));
+    }
+
+    /**
+     * Copy the map and put the value into the copy, an empty value removes the key instead
+     */
+    private static <K, V> Map<K, V> copyAndPut(Map<K, V> map, K key, V value) {
+        Map<K, V> copy = new HashMap<>(map);
+        if (isEmpty(value)) {
+            copy.remove(key);
+        } else {
+            copy.put(key, value);
+        }
+        return copy.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(copy);
+    }
+
+    private static <T> List<T> copyAndAdd(List<T> list, T element) {
+        List<T> copy = new ArrayList<>(list.size() + 1);
+        copy.addAll(list);
+        copy.add(element);
+        return Collections.unmodifiableList(copy);
+    }
+
+    private static <T> List<T> copyAndRemove(List<T> list, T element) {
+        List<T> copy = new ArrayList<>(list);
+        copy.remove(element);
+        return copy.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(copy);
+    }
+
+    private static boolean isEmpty(Object value) {
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).isEmpty();
+        }
+        return value instanceof List && ((List<?>) value).isEmpty();
+    }
+
+    /**
+     * Return a builder that starts with the policies of this snapshot, to add many policies at once
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Build a snapshot from many policies with one copy of the maps, instead of one copy per policy. The built
+     * snapshot has a larger version than the one the builder started with.
+     */
+    public static final class Builder {
+
+        private final long version;
+
+        private final Map<String, Map<ObjectIdentifier, List<RowFilterPolicy>>> rowFilterPolicyIndex = new HashMap<>();
+
+        private final Map<String, Map<ObjectIdentifier, Map<String, List<DataMaskPolicy>>>> dataMaskPolicyIndex =
+                new HashMap<>();
+
+        private Builder(PolicySnapshot snapshot) {
+            this.version = snapshot.version;
+            snapshot.rowFilterPolicyIndex.forEach((username, tableMap) -> tableMap.forEach(
+                    (tableIdentifier, policyList) -> getPolicyList(username, tableIdentifier).addAll(policyList)));
+            snapshot.dataMaskPolicyIndex.forEach((username, tableMap) -> tableMap.forEach(
+                    (tableIdentifier, columnMap) -> columnMap.forEach((columnName, policyList) -> getPolicyList(
+                            username, tableIdentifier, columnName).addAll(policyList))));
+        }
+
+        /**
+         * Remove all the policies
+         */
+        public Builder clear() {
+            rowFilterPolicyIndex.clear();
+            dataMaskPolicyIndex.clear();
+            return this;
+        }
+
+        public Builder add(RowFilterPolicy policy) {
+            getPolicyList(policy.getUsername(), toObjectIdentifier(policy)).add(policy);
+            return this;
+        }
+
+        public Builder add(DataMaskPolicy policy) {
+            getPolicyList(policy.getUsername(), toObjectIdentifier(policy), policy.getColumnName()).add(policy);
+            return this;
+        }
+
+        public PolicySnapshot build() {
+            Map<String, Map<ObjectIdentifier, List<RowFilterPolicy>>> rowFilterIndex = new HashMap<>();
+            rowFilterPolicyIndex.forEach((username, tableMap) -> {
+                Map<ObjectIdentifier, List<RowFilterPolicy>> tables = new HashMap<>(tableMap.size() * 4 / 3 + 1);
+                tableMap.forEach((tableIdentifier, policyList) -> tables.put(tableIdentifier,
+                        Collections.unmodifiableList(new ArrayList<>(policyList))));
+                rowFilterIndex.put(username, Collections.unmodifiableMap(tables));
+            });
+
+            Map<String, Map<ObjectIdentifier, Map<String, List<DataMaskPolicy>>>> dataMaskIndex = new HashMap<>();
+            Map<String, Map<ObjectIdentifier, Map<String, String>>> conditionIndex = new HashMap<>();
+            dataMaskPolicyIndex.forEach((username, tableMap) -> {
+                Map<ObjectIdentifier, Map<String, List<DataMaskPolicy>>> tables =
+                        new HashMap<>(tableMap.size() * 4 / 3 + 1);
+                Map<ObjectIdentifier, Map<String, String>> conditionTables =
+                        new HashMap<>(tableMap.size() * 4 / 3 + 1);
+                tableMap.forEach((tableIdentifier, columnMap) -> {
+                    Map<String, List<DataMaskPolicy>> columns = new HashMap<>(columnMap.size() * 4 / 3 + 1);
+                    Map<String, String> conditionMap = new HashMap<>(columnMap.size() * 4 / 3 + 1);
+                    columnMap.forEach((columnName, policyList) -> {
+                        columns.put(columnName, Collections.unmodifiableList(new ArrayList<>(policyList)));
+                        conditionMap.put(columnName, policyList.get(0).getCondition());
+                    });
+                    tables.put(tableIdentifier, Collections.unmodifiableMap(columns));
+                    conditionTables.put(tableIdentifier, Collections.unmodifiableMap(conditionMap));
+                });
+                dataMaskIndex.put(username, Collections.unmodifiableMap(tables));
+                conditionIndex.put(username, Collections.unmodifiableMap(conditionTables));
+            });
+
+            return new PolicySnapshot(version + 1, freeze(rowFilterIndex), freeze(dataMaskIndex),
+                    freeze(conditionIndex));
+        }
+
+        private List<RowFilterPolicy> getPolicyList(String username, ObjectIdentifier tableIdentifier) {
+            return rowFilterPolicyIndex
+                    .computeIfAbsent(username, key -> new HashMap<>())
+                    .computeIfAbsent(tableIdentifier, key -> new ArrayList<>());
+        }
+
+        private List<DataMaskPolicy> getPolicyList(String username, ObjectIdentifier tableIdentifier,
+                String columnName) {
+            return dataMaskPolicyIndex
+                    .computeIfAbsent(username, key -> new HashMap<>())
+                    .computeIfAbsent(tableIdentifier, key -> new HashMap<>())
+                    .computeIfAbsent(columnName, key -> new ArrayList<>());
+        }
+
+        private static <K, V> Map<K, V> freeze(Map<K, V> map) {
+            return map.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(map);
+        }
+    }
+
+    private static ObjectIdentifier toObjectIdentifier(RowFilterPolicy policy) {
+        return ObjectIdentifier.of(policy.getCatalogName(), policy.getDatabase(), policy.getTableName());
+    }
+
+    private static ObjectIdentifier toObjectIdentifier(DataMaskPolicy policy) {
+        return ObjectIdentifier.of(policy.getCatalogName(), policy.getDatabase(), policy.getTableName());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.policy;
+
+import org.apache.flink.table.catalog.ObjectIdentifier;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * The policies of a user on one table, resolved once per table reference path in a rewrite.
+ *
+ * @author: HamaWhite
+ */
+@Data
+@AllArgsConstructor
+public class TablePolicy {
+
+    private ObjectIdentifier tableIdentifier;
+
+    /**
+     * The row-level filter condition, null if there is none
+     */
+    private String rowFilterCondition;
+
+    /**
+     * column name -> data mask condition, empty if no column is masked
+     */
+    private Map<String, String> dataMaskConditions;
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.pool;
+
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded executor of the asynchronous rewrites.
+ *
+ * <p>At most {@code threads} rewrites run at the same time and at most {@code queueCapacity} wait in the queue, a
+ * rewrite beyond that is rejected at once, so that a non-blocking caller is never blocked. Cancelling the returned
+ * future removes a waiting rewrite from the queue, or interrupts a running one.
+ *
+ * @author: HamaWhite
+ */
+public class AsyncRewriteExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public AsyncRewriteExecutor(int threads, int queueCapacity) {
+        Preconditions.checkArgument(threads > 0, "the number of async rewrite threads must be positive");
+        Preconditions.checkArgument(queueCapacity > 0, "the queue capacity of async rewrite must be positive");
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ExecutorThreadFactory("security-async-rewrite"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Run the rewrite on this executor, the returned future fails with {@link RejectedExecutionException} if the queue
+     * is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> rewrite) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(rewrite.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled() && task.cancel(true)) {
+                // free the queue slot of the cancelled rewrite
+                executor.remove((Runnable) task);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Return the number of rewrites waiting in the queue
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Return the number of rewrites that are running
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Return the number of rewrites rejected because the queue is full
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Stop accepting rewrites, the submitted rewrites are still completed
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.pool;
+
+import com.hw.security.flink.exception.CustomException;
+
+import org.apache.flink.table.planner.delegation.ParserImpl;
+import org.apache.flink.util.Preconditions;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of {@link ParserImpl}, all of which share the catalogs of the same table environment.
+ *
+ * <p>A parser is lent to one thread for a whole parse-validate-rewrite, and every validation creates its own
+ * validator, so no Calcite validator is ever used by two threads at the same time. The parsers are created lazily, and
+ * at most {@code size} rewrites run concurrently, the others wait for an idle parser.
+ *
+ * @author: HamaWhite
+ */
+public class ParserPool {
+
+    private final Semaphore permits;
+
+    private final Queue<ParserImpl> idleParsers;
+
+    private final Supplier<ParserImpl> parserFactory;
+
+    public ParserPool(int size, Supplier<ParserImpl> parserFactory) {
+        Preconditions.checkArgument(size > 0, "the size of parser pool must be positive");
+        this.permits = new Semaphore(size, true);
+        this.idleParsers = new ConcurrentLinkedQueue<>();
+        this.parserFactory = parserFactory;
+    }
+
+    /**
+     * Borrow a parser, apply the function to it and give it back to the pool
+     */
+    public <T> T execute(Function<ParserImpl, T> function) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("Interrupted while waiting for an idle parser", e);
+        }
+        try {
+            ParserImpl parser = idleParsers.poll();
+            if (parser == null) {
+                parser = parserFactory.get();
+            }
+            try {
+                return function.apply(parser);
+            } finally {
+                idleParsers.offer(parser);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.result;
+
+import com.hw.security.flink.exception.CustomException;
+
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The open cursors of a security context.
+ *
+ * <p>At most {@code maxOpenCursors} cursors are open at the same time, opening one more fails before its job is
+ * submitted. The cursors idle for longer than {@code idleTimeout} are closed by a background thread, which is started
+ * by the first cursor.
+ *
+ * @author: HamaWhite
+ */
+public class CursorManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CursorManager.class);
+
+    private final Map<String, ResultCursor> cursorMap = new ConcurrentHashMap<>();
+
+    private final int maxOpenCursors;
+
+    private final Semaphore permits;
+
+    private final long idleTimeoutMillis;
+
+    private volatile ScheduledExecutorService expiryExecutor;
+
+    public CursorManager(int maxOpenCursors, Duration idleTimeout) {
+        Preconditions.checkArgument(maxOpenCursors > 0, "the maximum number of open cursors must be positive");
+        Preconditions.checkArgument(!idleTimeout.isNegative() && !idleTimeout.isZero(),
+                "the idle timeout of cursors must be positive");
+        this.maxOpenCursors = maxOpenCursors;
+        this.permits = new Semaphore(maxOpenCursors);
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+    }
+
+    /**
+     * Open a cursor over the rows returned by the executor, which is only called if the limit of open cursors is not
+     * reached
+     */
+    public ResultCursor open(Supplier<ResultIterator> executor) {
+        if (!permits.tryAcquire()) {
+            throw new CustomException(
+                    String.format("Too many open cursors, at most %d cursors can be open", maxOpenCursors));
+        }
+        ResultIterator iterator;
+        try {
+            iterator = executor.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        String cursorId = UUID.randomUUID().toString();
+        ResultCursor cursor = new ResultCursor(cursorId, iterator, () -> {
+            if (cursorMap.remove(cursorId) != null) {
+                permits.release();
+            }
+        });
+        cursorMap.put(cursorId, cursor);
+        startExpiry();
+        return cursor;
+    }
+
+    /**
+     * Return the open cursor, or throw an exception if it is closed or expired
+     */
+    public ResultCursor get(String cursorId) {
+        ResultCursor cursor = cursorMap.get(cursorId);
+        if (cursor == null) {
+            throw new CustomException(String.format("Cursor %s does not exist or has been closed", cursorId));
+        }
+        return cursor;
+    }
+
+    public int getOpenCount() {
+        return cursorMap.size();
+    }
+
+    /**
+     * Close the cursors idle for longer than the idle timeout, a cursor waiting for the rows of its job does not block
+     * the others
+     */
+    public void expireIdleCursors() {
+        long now = System.currentTimeMillis();
+        for (ResultCursor cursor : new ArrayList<>(cursorMap.values())) {
+            if (cursor.isIdle(now, idleTimeoutMillis)) {
+                try {
+                    if (cursor.closeIfIdle(idleTimeoutMillis)) {
+                        LOG.info("Closed cursor [{}] idle for more than {} ms", cursor.getId(), idleTimeoutMillis);
+                    }
+                } catch (Exception e) {
+                    LOG.warn("Failed to close cursor [{}]", cursor.getId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Close all the open cursors and stop the expiry thread
+     */
+    public void closeAll() {
+        if (expiryExecutor != null) {
+            expiryExecutor.shutdownNow();
+        }
+        new ArrayList<>(cursorMap.values()).forEach(this::closeQuietly);
+    }
+
+    private void startExpiry() {
+        if (expiryExecutor == null) {
+            synchronized (this) {
+                if (expiryExecutor == null) {
+                    long period = Math.max(idleTimeoutMillis / 2, 1);
+                    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                            new ExecutorThreadFactory("security-cursor-expiry"));
+                    executor.scheduleWithFixedDelay(this::expireIdleCursors, period, period, TimeUnit.MILLISECONDS);
+                    expiryExecutor = executor;
+                }
+            }
+        }
+    }
+
+    private void closeQuietly(ResultCursor cursor) {
+        try {
+            cursor.close();
+        } catch (Exception e) {
+            LOG.warn("Failed to close cursor [{}]", cursor.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.result;
+
+import com.hw.security.flink.exception.CustomException;
+
+import org.apache.flink.types.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A handle of a running query, which serves the rows page by page without resubmitting the job.
+ *
+ * <p>The cursor is closed when the last row has been fetched, when it is closed by the caller, or when it has been
+ * idle for longer than {@link com.hw.security.flink.config.SecurityOptions#CURSOR_IDLE_TIMEOUT}. Closing it cancels
+ * the job and frees its slot among the open cursors.
+ *
+ * @author: HamaWhite
+ */
+public class ResultCursor implements AutoCloseable {
+
+    private final String id;
+
+    private final ResultIterator iterator;
+
+    private final Runnable closeAction;
+
+    /**
+     * Serializes the fetches, closing the cursor never waits for it
+     */
+    private final Lock fetchLock = new ReentrantLock();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private volatile long lastAccessTime;
+
+    ResultCursor(String id, ResultIterator iterator, Runnable closeAction) {
+        this.id = id;
+        this.iterator = iterator;
+        this.closeAction = closeAction;
+        this.lastAccessTime = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Fetch at most size rows, which blocks until size rows are available or the query ends. Fewer rows than size
+     * means that it is the last page.
+     */
+    public List<Row> fetchNext(int size) {
+        fetchLock.lock();
+        try {
+            checkOpen();
+            lastAccessTime = System.currentTimeMillis();
+            List<Row> rowList = new ArrayList<>(size);
+            try {
+                while (size > 0 && iterator.hasNext()) {
+                    rowList.add(iterator.next());
+                    lastAccessTime = System.currentTimeMillis();
+                    size--;
+                }
+            } catch (RuntimeException e) {
+                checkOpen();
+                throw e;
+            }
+            // the cursor has expired while waiting for the rows
+            checkOpen();
+            lastAccessTime = System.currentTimeMillis();
+            if (iterator.isClosed()) {
+                // the last row has been fetched
+                close();
+            }
+            return rowList;
+        } finally {
+            fetchLock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    boolean isIdle(long now, long idleTimeoutMillis) {
+        return now - lastAccessTime > idleTimeoutMillis;
+    }
+
+    /**
+     * Close the cursor if it is still idle, return true if it is closed. A fetch waiting for rows for longer than the
+     * idle timeout is cancelled without waiting for it to return.
+     */
+    boolean closeIfIdle(long idleTimeoutMillis) {
+        if (fetchLock.tryLock()) {
+            try {
+                // the cursor may have been used since it was found idle
+                if (!isIdle(System.currentTimeMillis(), idleTimeoutMillis) || !closed.compareAndSet(false, true)) {
+                    return false;
+                }
+            } finally {
+                fetchLock.unlock();
+            }
+        } else if (!isIdle(System.currentTimeMillis(), idleTimeoutMillis) || !closed.compareAndSet(false, true)) {
+            // a fetch is reading the rows
+            return false;
+        }
+        release();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    /**
+     * Cancel the job, which also wakes up a fetch waiting for its rows
+     */
+    private void release() {
+        try {
+            iterator.close();
+        } finally {
+            closeAction.run();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed.get()) {
+            throw new CustomException(String.format("Cursor %s is closed", id));
+        }
+    }
+}
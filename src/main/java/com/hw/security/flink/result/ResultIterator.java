@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.result;
+
+import com.hw.security.flink.exception.CustomException;
+
+import org.apache.flink.types.Row;
+import org.apache.flink.util.CloseableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The rows of an executed statement, which are pulled from the job only when they are read. The client keeps at most
+ * one batch of rows fetched from the collect sink, whose size is set by
+ * {@link com.hw.security.flink.config.SecurityOptions#RESULT_PREFETCH_SIZE}.
+ *
+ * <p>Closing the iterator cancels the job of a query if it is still running, and it is closed as soon as the last row
+ * has been read. Either use it in a try-with-resources block or read it to the end.
+ *
+ * @author: HamaWhite
+ */
+public class ResultIterator implements CloseableIterator<Row> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResultIterator.class);
+
+    private final CloseableIterator<Row> iterator;
+
+    /**
+     * The iterator may be closed by another thread, such as an expired cursor
+     */
+    private volatile boolean closed;
+
+    public ResultIterator(CloseableIterator<Row> iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (iterator.hasNext()) {
+            return true;
+        }
+        // release the connection to the collect sink without waiting for the caller. The job has finished after the
+        // last row, and a finished insert job can no longer be cancelled, so the failure is only logged
+        closed = true;
+        try {
+            iterator.close();
+        } catch (Exception e) {
+            LOG.debug("Failed to close the result iterator of a finished job", e);
+        }
+        return false;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return iterator.next();
+    }
+
+    /**
+     * A sequential stream of the rows, closing the stream closes this iterator
+     */
+    public Stream<Row> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            iterator.close();
+        } catch (Exception e) {
+            throw new CustomException("Failed to close the result iterator", e);
+        }
+    }
+}
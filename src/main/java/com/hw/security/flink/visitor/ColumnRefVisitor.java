@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.visitor;
+
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlJoin;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
+import org.apache.calcite.util.Util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collect the names of the columns referenced by a validated statement, whose identifiers have been expanded and
+ * qualified by the validator. A name is collected whichever table it belongs to, so the names are a superset of the
+ * columns read from each table.
+ *
+ * <p>If the statement contains a star or a natural join, which read columns without naming them, the names are marked
+ * as incomplete, and the caller should read all the columns.
+ *
+ * @author: HamaWhite
+ */
+public class ColumnRefVisitor extends SqlBasicVisitor<Void> {
+
+    private final Set<String> columnNameSet = new HashSet<>();
+
+    private boolean complete = true;
+
+    @Override
+    public Void visit(SqlIdentifier identifier) {
+        if (identifier.isStar()) {
+            complete = false;
+        } else {
+            columnNameSet.add(Util.last(identifier.names));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(SqlCall call) {
+        if (call instanceof SqlJoin && ((SqlJoin) call).isNatural()) {
+            complete = false;
+        } else if (call.getKind() == SqlKind.COUNT) {
+            // COUNT(*) reads no column
+            for (SqlNode operand : call.getOperandList()) {
+                if (operand != null && !(operand instanceof SqlIdentifier && ((SqlIdentifier) operand).isStar())) {
+                    operand.accept(this);
+                }
+            }
+            return null;
+        }
+        return super.visit(call);
+    }
+
+    /**
+     * Return the names of the referenced columns
+     */
+    public Set<String> getColumnNameSet() {
+        return columnNameSet;
+    }
+
+    /**
+     * Return false if some columns are read without being named
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
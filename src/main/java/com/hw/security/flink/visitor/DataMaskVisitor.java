@@ -19,23 +19,24 @@
 package com.hw.security.flink.visitor;
 
 import com.google.common.collect.ImmutableList;
-import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.cache.DataMaskTemplateCache;
 import com.hw.security.flink.enums.DataMaskType;
-import com.hw.security.flink.exception.CustomException;
 import com.hw.security.flink.model.ColumnEntity;
 import com.hw.security.flink.model.TableEntity;
+import com.hw.security.flink.policy.TablePolicy;
 import com.hw.security.flink.visitor.basic.AbstractBasicVisitor;
+import com.hw.security.flink.visitor.basic.RewriteContext;
 
 import org.apache.calcite.sql.*;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.parser.SqlParserPos;
 import org.apache.flink.table.catalog.ObjectIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static com.hw.security.flink.visitor.DataMaskVisitor.ParentType.*;
 
@@ -47,21 +48,33 @@ public class DataMaskVisitor extends AbstractBasicVisitor {
 
     private static final Logger LOG = LoggerFactory.getLogger(DataMaskVisitor.class);
 
-    public DataMaskVisitor(SecurityContext context, String username) {
-        super(context, username);
+    /**
+     * The names of the columns referenced by the statement, null to read all the columns of the masked tables
+     */
+    private final Set<String> referencedColumnSet;
+
+    public DataMaskVisitor(RewriteContext rewriteContext, Set<String> referencedColumnSet) {
+        super(rewriteContext);
+        this.referencedColumnSet = referencedColumnSet;
     }
 
     @Override
     public Void visit(SqlCall call) {
         if (call instanceof SqlSelect) {
-            SqlSelect sqlSelect = (SqlSelect) call;
-            if (!isCustomSqlSelect(sqlSelect)) {
-                walkTreeMaskTableRef(sqlSelect, SQL_SELECT, sqlSelect.getFrom());
-            }
+            rewrite((SqlSelect) call);
         }
         return super.visit(call);
     }
 
+    /**
+     * Replace the tables with masked columns in the from clause by masking sub-queries
+     */
+    public void rewrite(SqlSelect sqlSelect) {
+        if (!isCustomSqlSelect(sqlSelect)) {
+            walkTreeMaskTableRef(sqlSelect, SQL_SELECT, sqlSelect.getFrom());
+        }
+    }
+
     private void walkTreeMaskTableRef(SqlNode parent, ParentType parentType, SqlNode from) {
         if (from instanceof SqlJoin) {
             SqlJoin sqlJoin = (SqlJoin) from;
@@ -80,30 +93,36 @@ public class DataMaskVisitor extends AbstractBasicVisitor {
     }
 
     private void addDataMask(SqlNode parent, ParentType parentType, String tablePath, String tableAlias) {
-        ObjectIdentifier tableIdentifier = toObjectIdentifier(tablePath);
-        TableEntity table = securityContext.getTable(tableIdentifier);
+        TablePolicy tablePolicy = getTablePolicy(tablePath);
+        Map<String, String> conditionMap = tablePolicy.getDataMaskConditions();
+        // no column of this table is masked, so there is no need to look up the table schema
+        if (conditionMap.isEmpty()) {
+            return;
+        }
+        TableEntity table = securityContext.getTable(tablePolicy.getTableIdentifier());
+        Set<String> columnSet = getReadColumnSet(tablePolicy);
 
         boolean doColumnMasking = false;
-        List<String> columnTransformerList = new ArrayList<>();
+        SqlNodeList selectList = new SqlNodeList(SqlParserPos.ZERO);
         for (ColumnEntity column : table.getColumnList()) {
-            String columnTransformer = column.getColumnName();
-            Optional<String> condition = policyManager.getDataMaskCondition(username,
-                    tableIdentifier.getCatalogName(),
-                    tableIdentifier.getDatabaseName(),
-                    tableIdentifier.getObjectName(),
-                    column.getColumnName());
-            if (condition.isPresent()) {
+            // the columns not referenced by the statement are neither read nor masked
+            if (columnSet != null && !columnSet.contains(column.getColumnName())) {
+                continue;
+            }
+            SqlIdentifier columnIdentifier = new SqlIdentifier(column.getColumnName(), SqlParserPos.ZERO);
+            String condition = conditionMap.get(column.getColumnName());
+            if (condition == null) {
+                selectList.add(columnIdentifier);
+            } else {
                 doColumnMasking = true;
-                DataMaskType maskType = policyManager.getDataMaskType(condition.get());
-                columnTransformer = maskType.getTransformer().replace("{col}", column.getColumnName());
+                selectList.add(buildColumnTransformer(column, columnIdentifier, condition));
+                rewriteContext.getAppliedPolicies().addDataMask(table.getTableIdentifier(), column.getColumnName());
             }
-            columnTransformerList.add(columnTransformer);
         }
         if (doColumnMasking) {
-            String replaceText = buildReplaceText(table, columnTransformerList);
-            SqlSelect sqlSelect = (SqlSelect) securityContext.parseExpression(replaceText);
+            SqlSelect sqlSelect = buildMaskingSelect(table, selectList);
             // mark this SqlSelect as custom, no need to rewrite
-            setSqlSelectCustom(sqlSelect, true);
+            rewriteContext.getCustomSqlSelectSet().add(sqlSelect);
             SqlNode[] operands = new SqlNode[2];
             operands[0] = sqlSelect;
             // add table alias
@@ -113,31 +132,60 @@ public class DataMaskVisitor extends AbstractBasicVisitor {
         }
     }
 
-    private String buildReplaceText(TableEntity table, List<String> columnTransformerList) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("(SELECT ");
-        boolean firstOne = true;
-        for (int index = 0; index < columnTransformerList.size(); index++) {
-            String transformer = columnTransformerList.get(index);
-            if (!firstOne) {
-                sb.append(", ");
-            } else {
-                firstOne = false;
-            }
-            ColumnEntity column = table.getColumnList().get(index);
-            String colName = column.getColumnName();
-            if (!transformer.equals(colName)) {
-                // CAST(transformer AS col_type) AS col_name
-                sb.append(String.format("CAST( %s AS %s) AS %s", transformer, column.getColumnType(),
-                        column.getColumnName()));
-            } else {
-                sb.append(column.getColumnName());
-            }
+    /**
+     * The columns read by the statement from the table, including those of its row-level filter, which the mixed
+     * rewrite adds to the enclosing query. Null to read all the columns.
+     */
+    private Set<String> getReadColumnSet(TablePolicy tablePolicy) {
+        if (referencedColumnSet == null || tablePolicy.getRowFilterCondition() == null) {
+            return referencedColumnSet;
         }
-        sb.append(" FROM ");
-        sb.append(table.getTableIdentifier().asSerializableString());
-        sb.append(")");
-        return sb.toString();
+        // the visitor only reads the compiled condition, so it needs no copy
+        ColumnRefVisitor visitor = new ColumnRefVisitor();
+        policyManager.getRowFilterTemplate(tablePolicy.getRowFilterCondition()).accept(visitor);
+        if (!visitor.isComplete()) {
+            return null;
+        }
+        Set<String> columnSet = new HashSet<>(referencedColumnSet);
+        columnSet.addAll(visitor.getColumnNameSet());
+        return columnSet;
+    }
+
+    /**
+     * CAST(transformer AS col_type) AS col_name, the transformer and column type are parsed only once
+     */
+    private SqlNode buildColumnTransformer(ColumnEntity column, SqlIdentifier columnIdentifier, String condition) {
+        DataMaskType maskType = policyManager.getDataMaskType(condition);
+        DataMaskTemplateCache templateCache = securityContext.getDataMaskTemplateCache();
+
+        String transformerTemplate = maskType.getTransformer();
+        if (securityContext.isNativeTransformerEnabled() && maskType.getNativeTransformer() != null
+                && isCharacterString(column.getColumnType())) {
+            transformerTemplate = maskType.getNativeTransformer();
+        }
+        SqlNode transformer = templateCache.getTransformer(transformerTemplate, column.getColumnName(),
+                this::parseExpression);
+        SqlDataTypeSpec dataTypeSpec = templateCache.getDataTypeSpec(column.getColumnType(), this::parseExpression);
+        SqlNode cast = SqlStdOperatorTable.CAST.createCall(SqlParserPos.ZERO, transformer, dataTypeSpec);
+        return SqlStdOperatorTable.AS.createCall(SqlParserPos.ZERO, cast, columnIdentifier);
+    }
+
+    /**
+     * STRING, VARCHAR(n) or CHAR(n)
+     */
+    private static boolean isCharacterString(String columnType) {
+        return columnType.startsWith("STRING") || columnType.startsWith("VARCHAR") || columnType.startsWith("CHAR");
+    }
+
+    /**
+     * SELECT select_list FROM catalog.database.table
+     */
+    private SqlSelect buildMaskingSelect(TableEntity table, SqlNodeList selectList) {
+        ObjectIdentifier identifier = table.getTableIdentifier();
+        SqlIdentifier from = new SqlIdentifier(ImmutableList.of(identifier.getCatalogName(),
+                identifier.getDatabaseName(), identifier.getObjectName()), SqlParserPos.ZERO);
+        return new SqlSelect(SqlParserPos.ZERO, SqlNodeList.EMPTY, selectList, from, null, null, null,
+                SqlNodeList.EMPTY, null, null, null, SqlNodeList.EMPTY);
     }
 
     private void rewrittenTree(SqlNode parent, ParentType parentType, SqlBasicCall replaced) {
@@ -165,21 +213,7 @@ public class DataMaskVisitor extends AbstractBasicVisitor {
         SQL_JOIN_RIGHT
     }
 
-    public void setSqlSelectCustom(SqlSelect sqlSelect, boolean custom) {
-        try {
-            Method declaredMethod = SqlSelect.class.getDeclaredMethod("setCustom", boolean.class);
-            declaredMethod.invoke(sqlSelect, custom);
-        } catch (Exception e) {
-            throw new CustomException(e);
-        }
-    }
-
     public boolean isCustomSqlSelect(SqlSelect sqlSelect) {
-        try {
-            Method declaredMethod = SqlSelect.class.getDeclaredMethod("isCustom");
-            return (boolean) declaredMethod.invoke(sqlSelect);
-        } catch (Exception e) {
-            throw new CustomException(e);
-        }
+        return rewriteContext.getCustomSqlSelectSet().contains(sqlSelect);
     }
 }
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.visitor;
+
+import com.hw.security.flink.visitor.basic.AbstractBasicVisitor;
+import com.hw.security.flink.visitor.basic.RewriteContext;
+
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlSelect;
+
+import java.util.Set;
+
+/**
+ * Add row-level filter and column masking in a single traversal of the abstract syntax tree.
+ *
+ * <p>For each SqlSelect, the row-level filter is added to the where clause first, then the tables in the from clause
+ * are replaced by masking sub-queries, so the where clause of a masking sub-query is never modified. Both share the
+ * {@link RewriteContext}, so the policies of a table are resolved only once.
+ *
+ * @author: HamaWhite
+ */
+public class MixedVisitor extends AbstractBasicVisitor {
+
+    private final RowFilterVisitor rowFilterVisitor;
+
+    private final DataMaskVisitor dataMaskVisitor;
+
+    public MixedVisitor(RewriteContext rewriteContext, Set<String> referencedColumnSet) {
+        super(rewriteContext);
+        this.rowFilterVisitor = new RowFilterVisitor(rewriteContext);
+        this.dataMaskVisitor = new DataMaskVisitor(rewriteContext, referencedColumnSet);
+    }
+
+    @Override
+    public Void visit(SqlCall call) {
+        if (call instanceof SqlSelect) {
+            SqlSelect sqlSelect = (SqlSelect) call;
+            // the masking sub-queries generated in this traversal need no rewrite
+            if (!dataMaskVisitor.isCustomSqlSelect(sqlSelect)) {
+                rowFilterVisitor.rewrite(sqlSelect);
+                dataMaskVisitor.rewrite(sqlSelect);
+            }
+        }
+        return super.visit(call);
+    }
+}
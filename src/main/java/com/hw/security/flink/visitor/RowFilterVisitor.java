@@ -19,17 +19,18 @@
 package com.hw.security.flink.visitor;
 
 import com.google.common.collect.ImmutableList;
-import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.policy.TablePolicy;
 import com.hw.security.flink.visitor.basic.AbstractBasicVisitor;
+import com.hw.security.flink.visitor.basic.DeepCopyShuttle;
+import com.hw.security.flink.visitor.basic.RewriteContext;
 
 import org.apache.calcite.sql.*;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.parser.SqlParserPos;
-import org.apache.flink.table.catalog.ObjectIdentifier;
+import org.apache.calcite.sql.validate.SqlValidatorUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Optional;
-
 /**
  * @description: RowFilterVisitor
  * @author: HamaWhite
@@ -38,26 +39,31 @@ public class RowFilterVisitor extends AbstractBasicVisitor {
 
     private static final Logger LOG = LoggerFactory.getLogger(RowFilterVisitor.class);
 
-    public RowFilterVisitor(SecurityContext context, String username) {
-        super(context, username);
+    public RowFilterVisitor(RewriteContext rewriteContext) {
+        super(rewriteContext);
     }
 
     @Override
     public Void visit(SqlCall call) {
         if (call instanceof SqlSelect) {
-            SqlSelect sqlSelect = (SqlSelect) call;
-
-            SqlNode originWhere = sqlSelect.getWhere();
-            // add row level filter condition for where clause
-            SqlNode rowFilterWhere = addCondition(sqlSelect.getFrom(), originWhere);
-            if (rowFilterWhere != originWhere) {
-                LOG.info("Rewritten SQL based on row-level privilege filtering for user [{}]", username);
-            }
-            sqlSelect.setWhere(rowFilterWhere);
+            rewrite((SqlSelect) call);
         }
         return super.visit(call);
     }
 
+    /**
+     * Add the row-level filter conditions of the tables in the from clause to the where clause
+     */
+    public void rewrite(SqlSelect sqlSelect) {
+        SqlNode originWhere = sqlSelect.getWhere();
+        // add row level filter condition for where clause
+        SqlNode rowFilterWhere = addCondition(sqlSelect.getFrom(), originWhere);
+        if (rowFilterWhere != originWhere) {
+            LOG.info("Rewritten SQL based on row-level privilege filtering for user [{}]", username);
+        }
+        sqlSelect.setWhere(rowFilterWhere);
+    }
+
     /**
      * The main process of controlling row-level permissions
      */
@@ -89,18 +95,13 @@ public class RowFilterVisitor extends AbstractBasicVisitor {
      * Add row-level filtering based on user-configured permission points
      */
     private SqlNode addRowFilter(SqlNode where, String tablePath, String tableAlias) {
-        ObjectIdentifier tableIdentifier = toObjectIdentifier(tablePath);
-
-        Optional<String> condition = policyManager.getRowFilterCondition(username,
-                tableIdentifier.getCatalogName(),
-                tableIdentifier.getDatabaseName(),
-                tableIdentifier.getObjectName());
-
-        if (condition.isPresent()) {
-            SqlBasicCall sqlBasicCall = (SqlBasicCall) securityContext.parseExpression(condition.get());
-            ImmutableList<String> namesList = ImmutableList.of(tableAlias, sqlBasicCall.getOperands()[0].toString());
-            sqlBasicCall.getOperands()[0] = new SqlIdentifier(namesList, null, new SqlParserPos(0, 0), null);
-            return buildWhereClause(where, sqlBasicCall);
+        TablePolicy tablePolicy = getTablePolicy(tablePath);
+        String condition = tablePolicy.getRowFilterCondition();
+
+        if (condition != null) {
+            rewriteContext.getAppliedPolicies().addRowFilter(tablePolicy.getTableIdentifier());
+            SqlNode permissions = policyManager.getRowFilterTemplate(condition).accept(new AliasQualifier(tableAlias));
+            return buildWhereClause(where, permissions);
         }
         return buildWhereClause(where, null);
     }
@@ -108,19 +109,55 @@ public class RowFilterVisitor extends AbstractBasicVisitor {
     /**
      * Rebuild the where clause
      */
-    private SqlNode buildWhereClause(SqlNode where, SqlBasicCall permissions) {
+    private SqlNode buildWhereClause(SqlNode where, SqlNode permissions) {
         if (permissions != null) {
             if (where == null) {
                 return permissions;
             }
-            SqlBinaryOperator sqlBinaryOperator =
-                    new SqlBinaryOperator(SqlKind.AND.name(), SqlKind.AND, 0, true, null, null, null);
-            SqlNode[] operands = new SqlNode[2];
-            operands[0] = where;
-            operands[1] = permissions;
-            SqlParserPos sqlParserPos = new SqlParserPos(0, 0);
-            return new SqlBasicCall(sqlBinaryOperator, operands, sqlParserPos);
+            // the standard AND keeps the parentheses of the OR operands when unparsing
+            return SqlStdOperatorTable.AND.createCall(new SqlParserPos(0, 0), where, permissions);
         }
         return where;
     }
+
+    /**
+     * Copy the compiled condition, and qualify its column identifiers with the table alias. The sub-queries in the
+     * condition have their own scope, so they are copied as they are. The niladic functions such as CURRENT_DATE are
+     * parsed as identifiers too, and are left unqualified.
+     */
+    private static class AliasQualifier extends DeepCopyShuttle {
+
+        private final String tableAlias;
+
+        private final DeepCopyShuttle subQueryCopier = new DeepCopyShuttle();
+
+        public AliasQualifier(String tableAlias) {
+            this.tableAlias = tableAlias;
+        }
+
+        @Override
+        public SqlNode visit(SqlIdentifier identifier) {
+            if (identifier.isSimple() && !isNiladicFunction(identifier)) {
+                return new SqlIdentifier(ImmutableList.of(tableAlias, identifier.getSimple()), null,
+                        new SqlParserPos(0, 0), null);
+            }
+            return super.visit(identifier);
+        }
+
+        /**
+         * The validator only resolves an unquoted identifier to a niladic function, a quoted one is a column
+         */
+        private boolean isNiladicFunction(SqlIdentifier identifier) {
+            return !identifier.isComponentQuoted(0)
+                    && SqlValidatorUtil.lookupSqlFunctionByID(SqlStdOperatorTable.instance(), identifier, null) != null;
+        }
+
+        @Override
+        public SqlNode visit(SqlCall call) {
+            if (call.getKind() == SqlKind.SELECT) {
+                return call.accept(subQueryCopier);
+            }
+            return super.visit(call);
+        }
+    }
 }
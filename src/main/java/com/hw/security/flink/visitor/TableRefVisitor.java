@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.visitor;
+
+import org.apache.calcite.sql.*;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collect the table references in the from clause of every SqlSelect of a parsed but not yet validated statement,
+ * which is much cheaper than validation and is used to skip the statements that no policy applies to.
+ *
+ * <p>If a from clause contains anything else than tables, joins, aliases, snapshots and sub-queries, the references
+ * are marked as incomplete, and the caller should fall back to the full rewrite.
+ *
+ * @author: HamaWhite
+ */
+public class TableRefVisitor extends SqlBasicVisitor<Void> {
+
+    private final List<List<String>> tableNamesList = new ArrayList<>();
+
+    private boolean complete = true;
+
+    @Override
+    public Void visit(SqlCall call) {
+        if (call instanceof SqlSelect) {
+            collectTableRef(((SqlSelect) call).getFrom());
+        }
+        return super.visit(call);
+    }
+
+    private void collectTableRef(SqlNode from) {
+        if (from == null || from.getKind().belongsTo(SqlKind.QUERY)) {
+            // no from clause, or a sub-query that is visited as a SqlSelect later
+            return;
+        }
+        if (from instanceof SqlIdentifier) {
+            tableNamesList.add(((SqlIdentifier) from).names);
+        } else if (from instanceof SqlJoin) {
+            SqlJoin sqlJoin = (SqlJoin) from;
+            collectTableRef(sqlJoin.getLeft());
+            collectTableRef(sqlJoin.getRight());
+        } else if (from instanceof SqlSnapshot) {
+            collectTableRef(((SqlSnapshot) from).getTableRef());
+        } else if (from.getKind() == SqlKind.AS) {
+            collectTableRef(((SqlBasicCall) from).operand(0));
+        } else {
+            complete = false;
+        }
+    }
+
+    /**
+     * Return the names of the referenced tables, which may be partially qualified
+     */
+    public List<List<String>> getTableNamesList() {
+        return tableNamesList;
+    }
+
+    /**
+     * Return false if some table references may be missing
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
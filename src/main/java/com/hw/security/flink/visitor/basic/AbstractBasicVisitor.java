@@ -20,9 +20,13 @@ package com.hw.security.flink.visitor.basic;
 
 import com.hw.security.flink.PolicyManager;
 import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.policy.PolicySnapshot;
+import com.hw.security.flink.policy.TablePolicy;
 
+import org.apache.calcite.sql.SqlNode;
 import org.apache.calcite.sql.util.SqlBasicVisitor;
 import org.apache.flink.table.catalog.ObjectIdentifier;
+import org.apache.flink.table.planner.delegation.ParserImpl;
 
 /**
  * @description: AbstractBasicVisitor
@@ -36,10 +40,43 @@ public abstract class AbstractBasicVisitor extends SqlBasicVisitor<Void> {
 
     protected final String username;
 
-    protected AbstractBasicVisitor(SecurityContext securityContext, String username) {
-        this.securityContext = securityContext;
+    /**
+     * The policies pinned for the whole rewrite
+     */
+    protected final PolicySnapshot policySnapshot;
+
+    protected final RewriteContext rewriteContext;
+
+    private final ParserImpl parser;
+
+    protected AbstractBasicVisitor(RewriteContext rewriteContext) {
+        this.rewriteContext = rewriteContext;
+        this.securityContext = rewriteContext.getSecurityContext();
         this.policyManager = securityContext.getPolicyManager();
-        this.username = username;
+        this.username = rewriteContext.getUsername();
+        this.policySnapshot = rewriteContext.getPolicySnapshot();
+        this.parser = rewriteContext.getParser();
+    }
+
+    /**
+     * Parses a SQL expression with the parser of this rewrite
+     */
+    protected SqlNode parseExpression(String sqlExpression) {
+        return parser.parseExpression(sqlExpression);
+    }
+
+    /**
+     * Get the policies of the table, which are resolved only once per rewrite
+     */
+    protected TablePolicy getTablePolicy(String tablePath) {
+        return rewriteContext.getTablePolicyMap().computeIfAbsent(tablePath, this::resolveTablePolicy);
+    }
+
+    private TablePolicy resolveTablePolicy(String tablePath) {
+        ObjectIdentifier tableIdentifier = toObjectIdentifier(tablePath);
+        return new TablePolicy(tableIdentifier,
+                policySnapshot.getRowFilterCondition(username, tableIdentifier).orElse(null),
+                policySnapshot.getDataMaskConditions(username, tableIdentifier));
     }
 
     protected ObjectIdentifier toObjectIdentifier(String tablePath) {
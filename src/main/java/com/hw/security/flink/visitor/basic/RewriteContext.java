@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.visitor.basic;
+
+import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.model.AppliedPolicies;
+import com.hw.security.flink.policy.PolicySnapshot;
+import com.hw.security.flink.policy.TablePolicy;
+
+import org.apache.calcite.sql.SqlSelect;
+import org.apache.flink.table.planner.delegation.ParserImpl;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The state of one rewrite, which is shared by all visitors of the rewrite and never by two threads, except the table
+ * policies shared by a batch.
+ *
+ * @author: HamaWhite
+ */
+@Getter
+@AllArgsConstructor
+public class RewriteContext {
+
+    private final SecurityContext securityContext;
+
+    /**
+     * The parser borrowed from the parser pool for this rewrite
+     */
+    private final ParserImpl parser;
+
+    private final String username;
+
+    /**
+     * The policies pinned for the whole rewrite
+     */
+    private final PolicySnapshot policySnapshot;
+
+    /**
+     * table path -> the policies of the table, so that the visitors of a rewrite resolve each table only once. A batch
+     * of rewrites pinned to the same snapshot may share one thread-safe map.
+     */
+    private final Map<String, TablePolicy> tablePolicyMap;
+
+    /**
+     * The masking sub-queries generated by this rewrite, which need no rewrite. SqlSelect compares by identity here,
+     * since two sub-queries of the same table are equal but distinct nodes.
+     */
+    private final Set<SqlSelect> customSqlSelectSet = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The row-level filters and column masks applied by this rewrite
+     */
+    private final AppliedPolicies appliedPolicies = new AppliedPolicies();
+}
@@ -33,7 +33,8 @@ import manifold.ext.rt.api.This;
 import java.util.List;
 
 /**
- * Extend {@link ParserImpl} with manifold to add method parseExpression(String sqlExpression) and parseSql(String)
+ * Extend {@link ParserImpl} with manifold to add method parseExpression(String sqlExpression), parseSql(String) and
+ * parseSqlList(String)
  *
  * @author: HamaWhite
  */
@@ -75,6 +76,19 @@ public class ParserImplExtension {
         return parsed.get(0);
     }
 
+    /**
+     * Parses a script of SQL statements separated by ';' and return the abstract syntax trees in order
+     *
+     * @param script the SQL statements to evaluate
+     * @return abstract syntax trees
+     * @throws org.apache.flink.table.api.SqlParserException when failed to parse the script
+     */
+    public static List<SqlNode> parseSqlList(@This @Jailbreak ParserImpl thiz, String script) {
+        // add @Jailbreak annotation to access private variables
+        CalciteParser parser = thiz.calciteParserSupplier.get();
+        return parser.parseSqlList(script).getList();
+    }
+
     /**
      * validate the query
      *
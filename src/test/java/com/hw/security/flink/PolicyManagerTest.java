@@ -18,13 +18,25 @@
 
 package com.hw.security.flink;
 
+import com.google.common.collect.ImmutableMap;
 import com.hw.security.flink.enums.DataMaskType;
+import com.hw.security.flink.policy.DataMaskPolicy;
+import com.hw.security.flink.policy.PolicySnapshot;
+import com.hw.security.flink.policy.RowFilterPolicy;
 
+import org.apache.calcite.sql.SqlNode;
+import org.apache.flink.table.api.SqlParserException;
+import org.apache.flink.table.catalog.ObjectIdentifier;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 /**
  * @description: PolicyManagerTest
@@ -46,4 +58,192 @@ public class PolicyManagerTest {
         assertThat(ret.getTransformer()).isEqualTo("mask_hash({col})");
         assertThat(ret.getDataMaskOptions()).isEqualTo(Collections.emptyMap());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAddAndRemovePolicy() {
+        RowFilterPolicy rowFilterPolicy =
+                new RowFilterPolicy("user_A", "hive", "default", "orders", "region = 'beijing'");
+        DataMaskPolicy dataMaskPolicy =
+                new DataMaskPolicy("user_A", "hive", "default", "orders", "customer_name", "MASK");
+
+        policyManager.addPolicy(rowFilterPolicy);
+        policyManager.addPolicy(dataMaskPolicy);
+
+        assertThat(policyManager.getRowFilterCondition("user_A", "hive", "default", "orders"))
+                .isEqualTo(Optional.of("region = 'beijing'"));
+        assertThat(policyManager.getRowFilterCondition("user_B", "hive", "default", "orders"))
+                .isEqualTo(Optional.empty());
+        assertThat(policyManager.getDataMaskCondition("user_A", "hive", "default", "orders", "customer_name"))
+                .isEqualTo(Optional.of("MASK"));
+        assertThat(policyManager.getDataMaskCondition("user_A", "hive", "default", "orders", "region"))
+                .isEqualTo(Optional.empty());
+
+        assertThat(policyManager.removePolicy(rowFilterPolicy)).isTrue();
+        assertThat(policyManager.removePolicy(dataMaskPolicy)).isTrue();
+        assertThat(policyManager.removePolicy(dataMaskPolicy)).isFalse();
+
+        assertThat(policyManager.getRowFilterCondition("user_A", "hive", "default", "orders"))
+                .isEqualTo(Optional.empty());
+        assertThat(policyManager.getDataMaskCondition("user_A", "hive", "default", "orders", "customer_name"))
+                .isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void testAddInvalidRowFilterPolicy() {
+        RowFilterPolicy policy = new RowFilterPolicy("user_A", "hive", "default", "orders", "region = ");
+
+        assertThatThrownBy(() -> policyManager.addPolicy(policy)).isInstanceOf(SqlParserException.class);
+        assertThat(policyManager.getRowFilterCondition("user_A", "hive", "default", "orders"))
+                .isEqualTo(Optional.empty());
+    }
+
+    /**
+     * The compiled condition is shared by the policies using it, and is released with the last one
+     */
+    @Test
+    public void testRowFilterTemplate() {
+        RowFilterPolicy policyA = new RowFilterPolicy("user_A", "hive", "default", "orders", "region = 'beijing'");
+        RowFilterPolicy policyB = new RowFilterPolicy("user_B", "hive", "default", "orders", "region = 'beijing'");
+
+        policyManager.addPolicy(policyA);
+        policyManager.addPolicy(policyB);
+        SqlNode template = policyManager.getRowFilterTemplate("region = 'beijing'");
+        assertThat(template).hasToString("`region` = 'beijing'");
+
+        policyManager.removePolicy(policyA);
+        assertThat(policyManager.getRowFilterTemplate("region = 'beijing'")).isSameAs(template);
+
+        // the condition is still parsed for a pinned snapshot, but no longer kept
+        policyManager.removePolicy(policyB);
+        assertThat(policyManager.getRowFilterTemplate("region = 'beijing'"))
+                .isNotSameAs(template)
+                .isNotSameAs(policyManager.getRowFilterTemplate("region = 'beijing'"))
+                .hasToString(template.toString());
+    }
+
+    @Test
+    public void testGetDataMaskConditions() {
+        policyManager.addPolicy(new DataMaskPolicy("user_A", "hive", "default", "orders", "customer_name", "MASK"));
+        policyManager.addPolicy(new DataMaskPolicy("user_A", "hive", "default", "orders", "region", "MASK_HASH"));
+
+        assertThat(policyManager.getDataMaskConditions("user_A", "hive", "default", "orders"))
+                .isEqualTo(ImmutableMap.of("customer_name", "MASK", "region", "MASK_HASH"));
+        assertThat(policyManager.getDataMaskConditions("user_A", "hive", "default", "products"))
+                .isEqualTo(Collections.emptyMap());
+        assertThat(policyManager.getDataMaskConditions("user_B", "hive", "default", "orders"))
+                .isEqualTo(Collections.emptyMap());
+    }
+
+    @Test
+    public void testSnapshot() {
+        RowFilterPolicy policy = new RowFilterPolicy("user_A", "hive", "default", "orders", "region = 'beijing'");
+        ObjectIdentifier orders = ObjectIdentifier.of("hive", "default", "orders");
+
+        PolicySnapshot before = policyManager.getSnapshot();
+        policyManager.addPolicy(policy);
+        PolicySnapshot after = policyManager.getSnapshot();
+
+        // a pinned snapshot never changes
+        assertThat(before.getRowFilterCondition("user_A", orders)).isEqualTo(Optional.empty());
+        assertThat(after.getRowFilterCondition("user_A", orders)).isEqualTo(Optional.of("region = 'beijing'"));
+        assertThat(after.getVersion()).isGreaterThan(before.getVersion());
+
+        // removing a policy that does not exist publishes no new snapshot
+        policyManager.removePolicy(new RowFilterPolicy("user_B", "hive", "default", "orders", "region = 'beijing'"));
+        assertThat(policyManager.getSnapshot()).isSameAs(after);
+
+        policyManager.removePolicy(policy);
+        assertThat(policyManager.getVersion()).isGreaterThan(after.getVersion());
+        assertThat(after.getRowFilterCondition("user_A", orders)).isEqualTo(Optional.of("region = 'beijing'"));
+    }
+
+    /**
+     * Many policies are published as one snapshot, with the same lookups as adding them one by one
+     */
+    @Test
+    public void testAddPolicies() {
+        RowFilterPolicy ordersPolicy = new RowFilterPolicy("user_A", "hive", "default", "orders", "region = 'beijing'");
+        policyManager.addPolicy(ordersPolicy);
+        long version = policyManager.getVersion();
+
+        policyManager.addPolicies(
+                Arrays.asList(new RowFilterPolicy("user_A", "hive", "default", "orders", "region = 'hangzhou'"),
+                        new RowFilterPolicy("user_B", "hive", "default", "products", "id > 10")),
+                Arrays.asList(new DataMaskPolicy("user_A", "hive", "default", "orders", "customer_name", "MASK"),
+                        new DataMaskPolicy("user_A", "hive", "default", "orders", "region", "MASK_HASH")));
+
+        assertThat(policyManager.getVersion()).isEqualTo(version + 1);
+        // the policy added first still wins
+        assertThat(policyManager.getRowFilterCondition("user_A", "hive", "default", "orders"))
+                .isEqualTo(Optional.of("region = 'beijing'"));
+        assertThat(policyManager.getRowFilterCondition("user_B", "hive", "default", "products"))
+                .isEqualTo(Optional.of("id > 10"));
+        assertThat(policyManager.getDataMaskConditions("user_A", "hive", "default", "orders"))
+                .isEqualTo(ImmutableMap.of("customer_name", "MASK", "region", "MASK_HASH"));
+
+        // the policies added in bulk can be removed one by one
+        assertThat(policyManager.removePolicy(ordersPolicy)).isTrue();
+        assertThat(policyManager.getRowFilterCondition("user_A", "hive", "default", "orders"))
+                .isEqualTo(Optional.of("region = 'hangzhou'"));
+
+        // an invalid condition adds no policy
+        PolicySnapshot snapshot = policyManager.getSnapshot();
+        assertThatThrownBy(() -> policyManager.addPolicies(
+                Arrays.asList(new RowFilterPolicy("user_C", "hive", "default", "orders", "id > 1"),
+                        new RowFilterPolicy("user_C", "hive", "default", "products", "id = ")),
+                Collections.emptyList())).isInstanceOf(SqlParserException.class);
+        assertThat(policyManager.getSnapshot()).isSameAs(snapshot);
+    }
+
+    @Test
+    public void testReplacePolicies() {
+        policyManager.addPolicy(new RowFilterPolicy("user_A", "hive", "default", "orders", "region = 'beijing'"));
+        policyManager.addPolicy(new DataMaskPolicy("user_A", "hive", "default", "orders", "customer_name", "MASK"));
+        SqlNode template = policyManager.getRowFilterTemplate("region = 'beijing'");
+
+        policyManager.replacePolicies(
+                Collections.singletonList(new RowFilterPolicy("user_B", "hive", "default", "orders", "id > 10")),
+                Collections.emptyList());
+
+        assertThat(policyManager.getSnapshot().hasPolicy("user_A")).isFalse();
+        assertThat(policyManager.getRowFilterCondition("user_B", "hive", "default", "orders"))
+                .isEqualTo(Optional.of("id > 10"));
+        // the compiled condition of the replaced policy is released
+        assertThat(policyManager.getRowFilterTemplate("region = 'beijing'")).isNotSameAs(template);
+        assertThat(policyManager.getRowFilterTemplate("id > 10"))
+                .isSameAs(policyManager.getRowFilterTemplate("id > 10"));
+    }
+
+    /**
+     * Each lookup finds the policy of its own user, table and column among the policies of many users and tables
+     */
+    @Test
+    public void testLookupWithManyUsersAndTables() {
+        List<RowFilterPolicy> rowFilterPolicyList = new ArrayList<>();
+        List<DataMaskPolicy> dataMaskPolicyList = new ArrayList<>();
+        for (int user = 0; user < 10; user++) {
+            for (int table = 0; table < 50; table++) {
+                rowFilterPolicyList.add(new RowFilterPolicy("user_" + user, "hive", "default", "table_" + table,
+                        "id = " + (user * 100 + table)));
+                dataMaskPolicyList.add(new DataMaskPolicy("user_" + user, "hive", "default", "table_" + table, "name",
+                        user % 2 == 0 ? "MASK" : "MASK_HASH"));
+            }
+        }
+        PolicyManager manager = new PolicyManager();
+        manager.addPolicies(rowFilterPolicyList, dataMaskPolicyList);
+
+        for (int user = 0; user < 10; user++) {
+            for (int table = 0; table < 50; table++) {
+                assertThat(manager.getRowFilterCondition("user_" + user, "hive", "default", "table_" + table))
+                        .isEqualTo(Optional.of("id = " + (user * 100 + table)));
+                assertThat(manager.getDataMaskCondition("user_" + user, "hive", "default", "table_" + table, "name"))
+                        .isEqualTo(Optional.of(user % 2 == 0 ? "MASK" : "MASK_HASH"));
+            }
+        }
+        assertThat(manager.getRowFilterCondition("user_10", "hive", "default", "table_0")).isEqualTo(Optional.empty());
+        assertThat(manager.getRowFilterCondition("user_0", "hive", "default", "table_50")).isEqualTo(Optional.empty());
+        assertThat(manager.getRowFilterCondition("user_0", "hive", "other", "table_0")).isEqualTo(Optional.empty());
+        assertThat(manager.getDataMaskCondition("user_0", "hive", "default", "table_0", "id"))
+                .isEqualTo(Optional.empty());
+    }
+}
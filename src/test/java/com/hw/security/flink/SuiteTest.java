@@ -18,13 +18,28 @@
 
 package com.hw.security.flink;
 
+import com.hw.security.flink.cache.DataMaskTemplateCacheTest;
+import com.hw.security.flink.cache.RewriteCacheTest;
+import com.hw.security.flink.cache.SchemaCacheTest;
 import com.hw.security.flink.common.CommonTest;
+import com.hw.security.flink.common.RewriteOnlyTest;
 import com.hw.security.flink.execute.ExecuteDataMaskTest;
 import com.hw.security.flink.execute.ExecuteRowFilterTest;
 import com.hw.security.flink.execute.MixedExecuteTest;
+import com.hw.security.flink.function.MaskFunctionTest;
+import com.hw.security.flink.metrics.InMemoryRewriteMetricsTest;
+import com.hw.security.flink.metrics.RewriteMetricsTest;
+import com.hw.security.flink.plan.PushdownPlanTest;
+import com.hw.security.flink.pool.AsyncRewriteExecutorTest;
+import com.hw.security.flink.result.CursorManagerTest;
+import com.hw.security.flink.result.ResultIteratorTest;
+import com.hw.security.flink.rewrite.BatchRewriteTest;
+import com.hw.security.flink.rewrite.ConcurrentRewriteTest;
 import com.hw.security.flink.rewrite.MixedRewriteTest;
+import com.hw.security.flink.rewrite.NativeTransformerTest;
 import com.hw.security.flink.rewrite.RewriteDataMaskTest;
 import com.hw.security.flink.rewrite.RewriteRowFilterTest;
+import com.hw.security.flink.rewrite.ScriptRewriteTest;
 
 import org.junit.Ignore;
 import org.junit.runner.RunWith;
@@ -39,10 +54,25 @@ import org.junit.runners.Suite;
 @Ignore
 @RunWith(Suite.class)
 @Suite.SuiteClasses({CommonTest.class,
+        RewriteOnlyTest.class,
         PolicyManagerTest.class,
+        RewriteCacheTest.class,
+        SchemaCacheTest.class,
+        AsyncRewriteExecutorTest.class,
+        ResultIteratorTest.class,
+        CursorManagerTest.class,
+        InMemoryRewriteMetricsTest.class,
+        MaskFunctionTest.class,
+        DataMaskTemplateCacheTest.class,
         RewriteRowFilterTest.class,
         RewriteDataMaskTest.class,
+        NativeTransformerTest.class,
         MixedRewriteTest.class,
+        PushdownPlanTest.class,
+        ConcurrentRewriteTest.class,
+        BatchRewriteTest.class,
+        ScriptRewriteTest.class,
+        RewriteMetricsTest.class,
         ExecuteRowFilterTest.class,
         ExecuteDataMaskTest.class,
         MixedExecuteTest.class})
@@ -60,7 +60,7 @@ public abstract class AbstractBasicTest {
 
     protected static PolicyManager policyManager;
     protected static SecurityContext securityContext;
-    private static HiveCatalog hiveCatalog;
+    protected static HiveCatalog hiveCatalog;
 
     @BeforeClass
     public static void setup() {
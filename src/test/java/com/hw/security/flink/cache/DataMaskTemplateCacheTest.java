@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.cache;
+
+import com.hw.security.flink.exception.CustomException;
+
+import org.apache.calcite.avatica.util.Quoting;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.parser.SqlParseException;
+import org.apache.calcite.sql.parser.SqlParser;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description: DataMaskTemplateCacheTest
+ * @author: HamaWhite
+ */
+public class DataMaskTemplateCacheTest {
+
+    private static final String TRANSFORMER = "mask_show_last_n({col}, 4, 'x', 'x', 'x', -1, '1')";
+
+    private final AtomicInteger parseCount = new AtomicInteger();
+
+    @Test
+    public void testGetTransformer() {
+        DataMaskTemplateCache cache = new DataMaskTemplateCache();
+
+        assertThat(cache.getTransformer(TRANSFORMER, "phone", this::parse))
+                .hasToString("`MASK_SHOW_LAST_N`(`phone`, 4, 'x', 'x', 'x', -1, '1')");
+        // the cached template is not modified by the previous replacement
+        assertThat(cache.getTransformer(TRANSFORMER, "email", this::parse))
+                .hasToString("`MASK_SHOW_LAST_N`(`email`, 4, 'x', 'x', 'x', -1, '1')");
+        assertThat(parseCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetDataTypeSpec() {
+        DataMaskTemplateCache cache = new DataMaskTemplateCache();
+
+        assertThat(cache.getDataTypeSpec("DECIMAL(10, 2)", this::parse)).hasToString("DECIMAL(10, 2)");
+        assertThat(cache.getDataTypeSpec("DECIMAL(10, 2)", this::parse)).hasToString("DECIMAL(10, 2)");
+        assertThat(parseCount.get()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1L);
+    }
+
+    private SqlNode parse(String expression) {
+        parseCount.incrementAndGet();
+        try {
+            return SqlParser.create(expression, SqlParser.config().withQuoting(Quoting.BACK_TICK)).parseExpression();
+        } catch (SqlParseException e) {
+            throw new CustomException(e);
+        }
+    }
+}
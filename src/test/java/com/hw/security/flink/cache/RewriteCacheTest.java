@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.cache;
+
+import com.google.common.cache.CacheStats;
+import com.hw.security.flink.enums.RewriteMode;
+import com.hw.security.flink.model.AppliedPolicies;
+import com.hw.security.flink.model.RewrittenSql;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description: RewriteCacheTest
+ * @author: HamaWhite
+ */
+public class RewriteCacheTest {
+
+    private static final String SQL = "SELECT * FROM orders";
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    @Test
+    public void testHitAndMiss() {
+        RewriteCache cache = new RewriteCache(100, Duration.ofMinutes(1));
+
+        assertThat(cache.get("user_A", SQL, RewriteMode.ROW_FILTER, 1L, this::load).getSql()).isEqualTo("rewrite-1");
+        // the leading and trailing whitespace are ignored
+        assertThat(cache.get("user_A", " " + SQL + " ", RewriteMode.ROW_FILTER, 1L, this::load).getSql())
+                .isEqualTo("rewrite-1");
+
+        // each part of the key is significant
+        assertThat(cache.get("user_B", SQL, RewriteMode.ROW_FILTER, 1L, this::load).getSql()).isEqualTo("rewrite-2");
+        assertThat(cache.get("user_A", SQL, RewriteMode.DATA_MASK, 1L, this::load).getSql()).isEqualTo("rewrite-3");
+        assertThat(cache.get("user_A", SQL, RewriteMode.ROW_FILTER, 2L, this::load).getSql()).isEqualTo("rewrite-4");
+        assertThat(cache.getScript("user_A", SQL, RewriteMode.ROW_FILTER, 1L, this::load).getSql())
+                .isEqualTo("rewrite-5");
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.hitCount()).isEqualTo(1L);
+        assertThat(stats.missCount()).isEqualTo(5L);
+        assertThat(cache.size()).isEqualTo(5L);
+    }
+
+    @Test
+    public void testDisabled() {
+        RewriteCache cache = new RewriteCache(0, Duration.ofMinutes(1));
+
+        assertThat(cache.get("user_A", SQL, RewriteMode.MIXED, 1L, this::load).getSql()).isEqualTo("rewrite-1");
+        assertThat(cache.get("user_A", SQL, RewriteMode.MIXED, 1L, this::load).getSql()).isEqualTo("rewrite-2");
+        assertThat(cache.size()).isZero();
+    }
+
+    private RewrittenSql load() {
+        return new RewrittenSql("rewrite-" + loadCount.incrementAndGet(), new AppliedPolicies());
+    }
+}
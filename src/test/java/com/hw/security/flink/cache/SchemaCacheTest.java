@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.cache;
+
+import com.hw.security.flink.model.TableEntity;
+
+import org.apache.flink.table.catalog.ObjectIdentifier;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description: SchemaCacheTest
+ * @author: HamaWhite
+ */
+public class SchemaCacheTest {
+
+    private static final ObjectIdentifier ORDERS = ObjectIdentifier.of("hive", "default", "orders");
+
+    private static final ObjectIdentifier PRODUCTS = ObjectIdentifier.of("hive", "default", "products");
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    @Test
+    public void testHitAndInvalidate() {
+        SchemaCache cache = new SchemaCache(100, Duration.ofMinutes(1));
+
+        TableEntity orders = cache.get(ORDERS, this::load);
+        assertThat(cache.get(ORDERS, this::load)).isSameAs(orders);
+        cache.get(PRODUCTS, this::load);
+        assertThat(loadCount.get()).isEqualTo(2);
+
+        cache.invalidate(ORDERS);
+        assertThat(cache.get(ORDERS, this::load)).isNotSameAs(orders).isEqualTo(orders);
+        assertThat(cache.get(PRODUCTS, this::load)).isNotNull();
+        assertThat(loadCount.get()).isEqualTo(3);
+
+        cache.invalidateAll();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.stats().hitCount()).isEqualTo(2L);
+        assertThat(cache.stats().missCount()).isEqualTo(3L);
+    }
+
+    @Test
+    public void testDisabled() {
+        SchemaCache cache = new SchemaCache(0, Duration.ofMinutes(1));
+
+        cache.get(ORDERS, this::load);
+        cache.get(ORDERS, this::load);
+        assertThat(loadCount.get()).isEqualTo(2);
+    }
+
+    private TableEntity load(ObjectIdentifier tableIdentifier) {
+        loadCount.incrementAndGet();
+        return new TableEntity(tableIdentifier, Collections.emptyList());
+    }
+}
@@ -62,6 +62,24 @@ public class CommonTest extends AbstractBasicTest {
         assertEquals(expected, actual);
     }
 
+    /**
+     * The schema is loaded from the catalog only once, until the table is changed by a DDL
+     */
+    @Test
+    public void testGetTableFromCache() {
+        ObjectIdentifier tableIdentifier = ObjectIdentifier.of(CATALOG_NAME, DATABASE, TABLE_ORDERS);
+        TableEntity first = securityContext.getTable(tableIdentifier);
+        long missCount = securityContext.getSchemaCacheStats().missCount();
+
+        assertThat(securityContext.getTable(CATALOG_NAME, DATABASE, TABLE_ORDERS)).isSameAs(first);
+        assertThat(securityContext.getSchemaCacheStats().missCount()).isEqualTo(missCount);
+
+        // drop and create the table again
+        createTableOfOrders();
+        assertThat(securityContext.getTable(tableIdentifier)).isNotSameAs(first).isEqualTo(first);
+        assertThat(securityContext.getSchemaCacheStats().missCount()).isEqualTo(missCount + 1);
+    }
+
     /**
      * Call the system function that comes with Hive in FlinkSQL (under the default database),
      * <p>so that Hive UDF can be reused when desensitizing Flink SQL data.
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.common;
+
+import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.basic.AbstractBasicTest;
+import com.hw.security.flink.config.SecurityOptions;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.api.TableException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Rewrite SQL with a security context which only builds the planner and catalogs.
+ *
+ * @author: HamaWhite
+ */
+public class RewriteOnlyTest extends AbstractBasicTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RewriteOnlyTest.class);
+
+    private static SecurityContext rewriteOnlyContext;
+
+    @BeforeClass
+    public static void init() {
+        // create mysql cdc table orders
+        createTableOfOrders();
+
+        // add row filter and data mask policies
+        policyManager.addPolicy(rowFilterPolicy(USER_A, TABLE_ORDERS, "region = 'beijing'"));
+        policyManager.addPolicy(dataMaskPolicy(USER_A, TABLE_ORDERS, "customer_name", "MASK"));
+
+        Configuration configuration = new Configuration();
+        configuration.set(SecurityOptions.REWRITE_ONLY, true);
+
+        long start = System.nanoTime();
+        rewriteOnlyContext = new SecurityContext(policyManager, configuration);
+        LOG.info("Create rewrite-only security context in {} ms", (System.nanoTime() - start) / 1_000_000);
+        rewriteOnlyContext.useCatalog(hiveCatalog);
+    }
+
+    @Test
+    public void testMixedRewrite() {
+        String sql = "SELECT order_id, customer_name, region FROM orders";
+
+        assertThat(rewriteOnlyContext.mixedRewrite(USER_A, sql)).isEqualTo(securityContext.mixedRewrite(USER_A, sql));
+    }
+
+    @Test
+    public void testExecute() {
+        // the statements without a job can still be executed
+        assertThat(rewriteOnlyContext.execute("SHOW TABLES", 100)).isNotEmpty();
+
+        assertThatThrownBy(() -> rewriteOnlyContext.execute("SELECT order_id FROM orders"))
+                .isInstanceOf(TableException.class)
+                .hasMessageContaining(SecurityOptions.REWRITE_ONLY.key());
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.function;
+
+import org.apache.flink.table.api.EnvironmentSettings;
+import org.apache.flink.table.api.TableEnvironment;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.CollectionUtil;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFMask;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFMaskFirstN;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFMaskHash;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFMaskLastN;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFMaskShowFirstN;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFMaskShowLastN;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Compare the native mask functions with the Hive functions of the same names.
+ *
+ * @description: MaskFunctionTest
+ * @author: HamaWhite
+ */
+public class MaskFunctionTest {
+
+    private static final List<String> STRINGS = Arrays.asList("", "a", "Hello World-2023", "13912345678",
+            "ABCdef123!@#", "张三丰 Zhang", "ÀÉÎõü 99", "Ⅻ٣ۼ", "emoji 😀 ok", "x😀😀y");
+
+    private static final List<Long> NUMBERS = Arrays.asList(0L, 7L, 12L, 1234L, 13912345678L, -98765L);
+
+    @Test
+    public void testMask() throws Exception {
+        MaskFunction function = new MaskFunction();
+        for (String value : STRINGS) {
+            assertString(function.eval(StringData.fromString(value)), new GenericUDFMask(), value);
+            assertString(function.eval(StringData.fromString(value), "U", "l", "#", "*"),
+                    new GenericUDFMask(), value, "U", "l", "#", "*");
+            assertString(function.eval(StringData.fromString(value), -1, "l", -1, "*"),
+                    new GenericUDFMask(), value, -1, "l", -1, "*");
+        }
+        for (Long value : NUMBERS) {
+            assertNumber(function.eval(value), new GenericUDFMask(), value);
+            assertNumber(function.eval(value, "x", "x", "x", -1, "7"),
+                    new GenericUDFMask(), value, "x", "x", "x", -1, "7");
+        }
+        assertThat(function.eval((StringData) null)).isNull();
+        assertThat(function.eval((Long) null)).isNull();
+    }
+
+    @Test
+    public void testMaskCount() throws Exception {
+        List<AbstractMaskCountFunction> functions = Arrays.asList(new MaskFirstNFunction(), new MaskLastNFunction(),
+                new MaskShowFirstNFunction(), new MaskShowLastNFunction());
+        for (AbstractMaskCountFunction function : functions) {
+            for (int charCount : new int[]{-1, 0, 1, 4, 100}) {
+                for (String value : STRINGS) {
+                    assertString(function.eval(StringData.fromString(value), charCount),
+                            createHiveFunction(function), value, charCount);
+                    assertString(function.eval(StringData.fromString(value), charCount, "x", "x", "x", -1),
+                            createHiveFunction(function), value, charCount, "x", "x", "x", -1);
+                }
+                for (Long value : NUMBERS) {
+                    assertNumber(function.eval(value, charCount), createHiveFunction(function), value, charCount);
+                    assertNumber(function.eval(value, charCount, "x", "x", "x", -1, "1"),
+                            createHiveFunction(function), value, charCount, "x", "x", "x", -1, "1");
+                }
+            }
+            // the default charCount is 4
+            assertString(function.eval(StringData.fromString("13912345678")),
+                    createHiveFunction(function), "13912345678");
+        }
+    }
+
+    @Test
+    public void testMaskHash() throws Exception {
+        MaskHashFunction function = new MaskHashFunction();
+        for (String value : STRINGS) {
+            assertString(function.eval(StringData.fromString(value)), new GenericUDFMaskHash(), value);
+        }
+        assertThat(function.eval((StringData) null)).isNull();
+        // the numbers are masked to null like Hive
+        for (Long value : NUMBERS) {
+            assertThat(evaluate(new GenericUDFMaskHash(), TypeInfoFactory.longTypeInfo, value)).isNull();
+            assertThat(function.eval(value)).isNull();
+        }
+        assertThat(function.eval(1234)).isNull();
+        assertThat(function.eval(LocalDate.of(2023, 6, 18))).isNull();
+    }
+
+    @Test
+    public void testMaskDate() {
+        MaskFunction function = new MaskFunction();
+        LocalDate date = LocalDate.of(2023, 6, 18);
+
+        assertThat(function.eval(date)).isEqualTo(LocalDate.of(0, 1, 1));
+        // MASK_DATE_SHOW_YEAR
+        assertThat(function.eval(date, "x", "x", "x", -1, "1", 1, 0, -1)).isEqualTo(LocalDate.of(2023, 1, 1));
+        assertThat(function.eval(date, "x", "x", "x", -1, "1", -1, -1, 2000)).isEqualTo(LocalDate.of(2000, 6, 18));
+        // the invalid day and month are replaced by the default ones
+        assertThat(function.eval(date, "x", "x", "x", -1, "1", 32, 12, -1)).isEqualTo(LocalDate.of(2023, 1, 1));
+        // the day does not exist in the month, which fails like Hive
+        assertThatThrownBy(() -> function.eval(date, "x", "x", "x", -1, "1", 31, 1, -1))
+                .isInstanceOf(DateTimeException.class);
+        assertThatThrownBy(() -> function.eval(LocalDate.of(2023, 1, 31), "x", "x", "x", -1, "1", -1, 1, -1))
+                .isInstanceOf(DateTimeException.class);
+    }
+
+    @Test
+    public void testNumberType() {
+        MaskFunction function = new MaskFunction();
+        assertThat(function.eval(1234)).isEqualTo(1111);
+        assertThat(function.eval((short) -123)).isEqualTo((short) -111);
+        assertThat(function.eval((byte) 12, "x", "x", "x", -1, 5)).isEqualTo((byte) 55);
+        // the number out of [0, 9] is replaced by 1
+        assertThat(function.eval(1234L, "x", "x", "x", -1, 10)).isEqualTo(1111L);
+    }
+
+    /**
+     * The temporary system functions are resolved by the planner with the Hive arguments, and the calls on literals
+     * are reduced by the planner with the native functions.
+     */
+    @Test
+    public void testPlannerResolution() {
+        TableEnvironment tableEnv = TableEnvironment.create(EnvironmentSettings.inStreamingMode());
+        tableEnv.createTemporarySystemFunction(MaskFunction.NAME, MaskFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskShowLastNFunction.NAME, MaskShowLastNFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskHashFunction.NAME, MaskHashFunction.class);
+        tableEnv.executeSql("CREATE TABLE customers (id INT, name STRING, phone VARCHAR(20), birthday DATE) "
+                + "WITH ('connector' = 'datagen')");
+
+        String plan = tableEnv.explainSql("SELECT mask(id), mask_show_last_n(phone, 4, 'x', 'x', 'x', -1, '1'), "
+                + "mask_hash(name), mask(birthday, 'x', 'x', 'x', -1, '1', 1, 0, -1), mask('Ab1-') FROM customers");
+        assertThat(plan).contains("mask(id)", "mask_show_last_n(phone, 4, _UTF-16LE'x'", "mask_hash(name)",
+                "mask(birthday, _UTF-16LE'x'", "_UTF-16LE'Xxn-'");
+    }
+
+    /**
+     * The policies of MASK_HASH on the columns which are not strings are still planned, and return null
+     */
+    @Test
+    public void testMaskHashNonString() {
+        TableEnvironment tableEnv = TableEnvironment.create(EnvironmentSettings.inBatchMode());
+        tableEnv.createTemporarySystemFunction(MaskHashFunction.NAME, MaskHashFunction.class);
+
+        String sql = "SELECT CAST(mask_hash(id) AS INT), CAST(mask_hash(birthday) AS DATE), "
+                + "CAST(mask_hash(created) AS TIMESTAMP(3)) FROM (VALUES (1, DATE '2023-06-18', "
+                + "TIMESTAMP '2023-06-18 10:00:00')) AS t(id, birthday, created)";
+        List<Row> rowList = CollectionUtil.iteratorToList(tableEnv.executeSql(sql).collect());
+        assertThat(rowList).containsExactly(Row.of(null, null, null));
+    }
+
+    private static void assertString(StringData actual, GenericUDF hiveFunction, Object... args) throws Exception {
+        Object expected = evaluate(hiveFunction, TypeInfoFactory.stringTypeInfo, args);
+        assertThat(actual).hasToString(String.valueOf(expected));
+    }
+
+    private static void assertNumber(Long actual, GenericUDF hiveFunction, Object... args) throws Exception {
+        Object expected = evaluate(hiveFunction, TypeInfoFactory.longTypeInfo, args);
+        assertThat(actual).hasToString(String.valueOf(expected));
+    }
+
+    private static Object evaluate(GenericUDF hiveFunction, Object valueTypeInfo, Object... args) throws Exception {
+        ObjectInspector[] inspectors = new ObjectInspector[args.length];
+        DeferredObject[] arguments = new DeferredObject[args.length];
+        inspectors[0] = valueTypeInfo == TypeInfoFactory.stringTypeInfo
+                ? PrimitiveObjectInspectorFactory.javaStringObjectInspector
+                : PrimitiveObjectInspectorFactory.javaLongObjectInspector;
+        arguments[0] = new DeferredJavaObject(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            if (args[i] instanceof String) {
+                inspectors[i] = PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                        TypeInfoFactory.stringTypeInfo, new Text((String) args[i]));
+            } else {
+                inspectors[i] = PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                        TypeInfoFactory.intTypeInfo, new IntWritable((Integer) args[i]));
+            }
+            arguments[i] = new DeferredJavaObject(args[i]);
+        }
+        hiveFunction.initialize(inspectors);
+        return hiveFunction.evaluate(arguments);
+    }
+
+    private static GenericUDF createHiveFunction(AbstractMaskCountFunction function) {
+        if (function instanceof MaskFirstNFunction) {
+            return new GenericUDFMaskFirstN();
+        } else if (function instanceof MaskLastNFunction) {
+            return new GenericUDFMaskLastN();
+        } else if (function instanceof MaskShowFirstNFunction) {
+            return new GenericUDFMaskShowFirstN();
+        }
+        return new GenericUDFMaskShowLastN();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.metrics;
+
+import com.hw.security.flink.enums.RewritePhase;
+
+import org.apache.flink.table.catalog.ObjectIdentifier;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @description: InMemoryRewriteMetricsTest
+ * @author: HamaWhite
+ */
+public class InMemoryRewriteMetricsTest {
+
+    private static final ObjectIdentifier ORDERS = ObjectIdentifier.of("hive", "default", "orders");
+
+    private static final ObjectIdentifier PRODUCTS = ObjectIdentifier.of("hive", "default", "products");
+
+    private final InMemoryRewriteMetrics metrics = new InMemoryRewriteMetrics(100);
+
+    @Test
+    public void testLatency() {
+        for (int millis = 1; millis <= 100; millis++) {
+            metrics.recordLatency(RewritePhase.PARSE, TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertThat(metrics.getLatencyCount()).containsEntry("PARSE", 100L).containsEntry("VALIDATE", 0L);
+        assertThat(metrics.getLatencyP50Millis().get("PARSE")).isCloseTo(50.5, within(1D));
+        assertThat(metrics.getLatencyP99Millis().get("PARSE")).isCloseTo(99.0, within(1D));
+        assertThat(metrics.getLatencyStatistics(RewritePhase.PARSE).getMax())
+                .isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testCounter() {
+        metrics.countRowFilter("user_A", ORDERS);
+        metrics.countRowFilter("user_B", ORDERS);
+        metrics.countDataMask("user_A", PRODUCTS, "name");
+        metrics.countDataMask("user_A", PRODUCTS, "description");
+
+        assertThat(metrics.getRowFilterCountByUser()).containsEntry("user_A", 1L).containsEntry("user_B", 1L);
+        assertThat(metrics.getRowFilterCountByTable()).containsOnly(entry("hive.default.orders", 2L));
+        assertThat(metrics.getDataMaskCountByUser()).containsOnly(entry("user_A", 2L));
+        assertThat(metrics.getDataMaskCountByTable()).containsOnly(entry("hive.default.products", 2L));
+    }
+
+    @Test
+    public void testRegisterMBean() throws Exception {
+        ObjectName objectName = new ObjectName("com.hw.security.flink:type=RewriteMetrics,name=test");
+        metrics.registerMBean(objectName);
+        try {
+            metrics.countRowFilter("user_A", ORDERS);
+            Object attribute = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(objectName, "RowFilterCountByUser");
+            assertThat(attribute).isNotNull();
+        } finally {
+            metrics.unregisterMBean(objectName);
+        }
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)).isFalse();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.metrics;
+
+import com.hw.security.flink.basic.AbstractBasicTest;
+import com.hw.security.flink.enums.RewritePhase;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Record the latency of each phase and count the applied policies while rewriting.
+ *
+ * @author: HamaWhite
+ */
+public class RewriteMetricsTest extends AbstractBasicTest {
+
+    @BeforeClass
+    public static void init() {
+        // create mysql cdc table orders
+        createTableOfOrders();
+
+        // create mysql cdc table products
+        createTableOfProducts();
+
+        // add row filter and data mask policies
+        policyManager.addPolicy(rowFilterPolicy(USER_A, TABLE_ORDERS, "region = 'beijing'"));
+        policyManager.addPolicy(dataMaskPolicy(USER_A, TABLE_PRODUCTS, "name", "MASK_SHOW_LAST_4"));
+    }
+
+    @Test
+    public void testMixedRewrite() {
+        InMemoryRewriteMetrics metrics = (InMemoryRewriteMetrics) securityContext.getRewriteMetrics();
+        String sql = "SELECT o.order_id, p.name FROM orders AS o LEFT JOIN products AS p ON o.product_id = p.id";
+
+        securityContext.mixedRewrite(USER_A, sql);
+        // served from the rewrite cache, only the total latency is recorded, but the policies are counted again
+        securityContext.mixedRewrite(USER_A, sql);
+        assertThat(securityContext.getRewriteCacheStats().hitCount()).isEqualTo(1L);
+
+        assertThat(metrics.getLatencyCount()).containsEntry(RewritePhase.TOTAL.name(), 2L);
+        for (RewritePhase phase : RewritePhase.values()) {
+            assertThat(metrics.getLatencyCount().get(phase.name())).as(phase.name()).isPositive();
+            assertThat(metrics.getLatencyP99Millis().get(phase.name())).as(phase.name())
+                    .isGreaterThanOrEqualTo(metrics.getLatencyP50Millis().get(phase.name()));
+        }
+        assertThat(metrics.getRowFilterCountByUser()).containsOnly(entry(USER_A, 2L));
+        assertThat(metrics.getRowFilterCountByTable()).containsOnly(entry("hive.default.orders", 2L));
+        assertThat(metrics.getDataMaskCountByUser()).containsOnly(entry(USER_A, 2L));
+        assertThat(metrics.getDataMaskCountByTable()).containsOnly(entry("hive.default.products", 2L));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.plan;
+
+import com.hw.security.flink.PolicyManager;
+import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.config.SecurityOptions;
+import com.hw.security.flink.policy.DataMaskPolicy;
+import com.hw.security.flink.policy.RowFilterPolicy;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.catalog.GenericInMemoryCatalog;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compare the optimized plans of the original and the rewritten SQL, the masking sub-queries should not prevent the
+ * filter, partition and projection pushdown of the unmasked columns.
+ *
+ * @author: HamaWhite
+ */
+public class PushdownPlanTest {
+
+    private static final String CATALOG_NAME = "memory";
+    private static final String DATABASE = "default";
+    private static final String USER_A = "user_A";
+
+    private static final String PHYSICAL_PLAN = "== Optimized Physical Plan ==";
+    private static final String EXECUTION_PLAN = "== Optimized Execution Plan ==";
+    private static final Pattern SCAN_PATTERN = Pattern.compile("TableSourceScan\\(table=\\[\\[(.*?)]], fields=");
+
+    private static final String REGION_FILTER =
+            "=(region, _UTF-16LE'beijing':VARCHAR(2147483647) CHARACTER SET \"UTF-16LE\")";
+
+    private static SecurityContext securityContext;
+
+    @BeforeClass
+    public static void init() {
+        Configuration configuration = new Configuration();
+        configuration.set(SecurityOptions.REWRITE_ONLY, true);
+        PolicyManager policyManager = new PolicyManager();
+        securityContext = new SecurityContext(policyManager, configuration);
+        securityContext.useCatalog(new GenericInMemoryCatalog(CATALOG_NAME, DATABASE));
+
+        securityContext.execute("CREATE TABLE orders ("
+                + "  order_id       INT,"
+                + "  customer_name  STRING,"
+                + "  price          DECIMAL(10, 2),"
+                + "  region         STRING,"
+                + "  dt             STRING"
+                + ") PARTITIONED BY (dt) WITH ("
+                + "  'connector' = 'pushdown',"
+                + "  'partition-list' = 'dt:2023-01-01;dt:2023-01-02'"
+                + ")");
+        securityContext.execute("CREATE TABLE products ("
+                + "  id             INT,"
+                + "  name           STRING,"
+                + "  description    STRING"
+                + ") WITH ("
+                + "  'connector' = 'pushdown'"
+                + ")");
+
+        policyManager.addPolicy(new DataMaskPolicy(USER_A, CATALOG_NAME, DATABASE, "orders", "customer_name", "MASK"));
+        policyManager.addPolicy(
+                new DataMaskPolicy(USER_A, CATALOG_NAME, DATABASE, "products", "name", "MASK_SHOW_LAST_4"));
+        policyManager.addPolicy(new RowFilterPolicy(USER_A, CATALOG_NAME, DATABASE, "orders", "region = 'beijing'"));
+    }
+
+    @AfterClass
+    public static void close() {
+        securityContext.close();
+    }
+
+    /**
+     * The filter on the unmasked column and the partition are pushed down, only the read columns are projected.
+     */
+    @Test
+    public void testSelectWhere() {
+        String inputSql = "SELECT order_id, customer_name FROM orders WHERE price > 10 AND dt = '2023-01-01'";
+
+        List<String> inputScans = explainScans(inputSql);
+        assertThat(inputScans).containsExactly("memory, default, orders, partitions=[{dt=2023-01-01}], "
+                + "filter=[>(price, 10)], project=[order_id, customer_name]");
+
+        String outputSql = securityContext.rewriteDataMask(USER_A, inputSql);
+        assertThat(outputSql).contains("`mask`(`customer_name`)");
+        assertThat(explainScans(outputSql)).isEqualTo(inputScans);
+    }
+
+    @Test
+    public void testSelectStar() {
+        String inputSql = "SELECT * FROM orders WHERE price > 10";
+
+        List<String> inputScans = explainScans(inputSql);
+        assertThat(inputScans).containsExactly("memory, default, orders, filter=[>(price, 10)]");
+
+        String outputSql = securityContext.rewriteDataMask(USER_A, inputSql);
+        assertThat(explainScans(outputSql)).isEqualTo(inputScans);
+    }
+
+    @Test
+    public void testJoin() {
+        String inputSql = "SELECT o.order_id, o.customer_name, p.name "
+                + "FROM orders AS o JOIN products AS p ON o.order_id = p.id "
+                + "WHERE o.price > 10 AND o.dt = '2023-01-01' AND p.description = 'x'";
+
+        List<String> inputScans = explainScans(inputSql);
+        assertThat(inputScans).containsExactly(
+                "memory, default, orders, partitions=[{dt=2023-01-01}], filter=[>(price, 10)], "
+                        + "project=[order_id, customer_name]",
+                "memory, default, products, filter=[=(description, "
+                        + "_UTF-16LE'x':VARCHAR(2147483647) CHARACTER SET \"UTF-16LE\")], project=[id, name]");
+
+        String outputSql = securityContext.rewriteDataMask(USER_A, inputSql);
+        assertThat(explainScans(outputSql)).isEqualTo(inputScans);
+    }
+
+    /**
+     * The filter on the masked column compares the masked values, so it must stay above the mask function and is not
+     * pushed down, while the partition is still pruned.
+     */
+    @Test
+    public void testWhereMaskedColumn() {
+        String inputSql = "SELECT order_id FROM orders WHERE customer_name = 'John' AND dt = '2023-01-02'";
+
+        String outputSql = securityContext.rewriteDataMask(USER_A, inputSql);
+        assertThat(explainScans(outputSql)).containsExactly(
+                "memory, default, orders, partitions=[{dt=2023-01-02}], filter=[], project=[order_id, customer_name]");
+        assertThat(explainPhysicalPlan(outputSql)).contains("mask(customer_name)");
+    }
+
+    /**
+     * The row filter of the mixed rewrite is pushed down together with the filter of the input SQL.
+     */
+    @Test
+    public void testMixed() {
+        String inputSql = "SELECT order_id, customer_name FROM orders WHERE price > 10 AND dt = '2023-01-01'";
+
+        String outputSql = securityContext.mixedRewrite(USER_A, inputSql);
+        assertThat(explainScans(outputSql)).containsExactly("memory, default, orders, partitions=[{dt=2023-01-01}], "
+                + "filter=[and(>(price, 10), " + REGION_FILTER + ")], project=[order_id, customer_name]");
+    }
+
+    private static String explainPhysicalPlan(String sql) {
+        String plan = securityContext.execute("EXPLAIN " + sql).get(0).getField(0).toString();
+        return plan.substring(plan.indexOf(PHYSICAL_PLAN), plan.indexOf(EXECUTION_PLAN));
+    }
+
+    /**
+     * Return the digests of the table source scans in the optimized physical plan, which contain the pushed down
+     * partitions, filters and projected fields.
+     */
+    private static List<String> explainScans(String sql) {
+        List<String> scanList = new ArrayList<>();
+        Matcher matcher = SCAN_PATTERN.matcher(explainPhysicalPlan(sql));
+        while (matcher.find()) {
+            scanList.add(matcher.group(1));
+        }
+        return scanList;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.plan;
+
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.streaming.api.functions.source.SourceFunction;
+import org.apache.flink.table.connector.ChangelogMode;
+import org.apache.flink.table.connector.source.DynamicTableSource;
+import org.apache.flink.table.connector.source.ScanTableSource;
+import org.apache.flink.table.connector.source.SourceFunctionProvider;
+import org.apache.flink.table.connector.source.abilities.SupportsFilterPushDown;
+import org.apache.flink.table.connector.source.abilities.SupportsPartitionPushDown;
+import org.apache.flink.table.connector.source.abilities.SupportsProjectionPushDown;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.expressions.CallExpression;
+import org.apache.flink.table.expressions.FieldReferenceExpression;
+import org.apache.flink.table.expressions.ResolvedExpression;
+import org.apache.flink.table.expressions.ValueLiteralExpression;
+import org.apache.flink.table.factories.DynamicTableSourceFactory;
+import org.apache.flink.table.factories.FactoryUtil;
+import org.apache.flink.table.functions.BuiltInFunctionDefinitions;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.types.DataType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A table source that supports the filter, projection and partition pushdown like Hive or JDBC, and is only used to
+ * explain the plans. The comparisons between a column and a literal are pushed down, and the partitions are listed by
+ * the option partition-list, such as 'dt:2023-01-01;dt:2023-01-02'.
+ *
+ * @author: HamaWhite
+ */
+public class PushdownTableFactory implements DynamicTableSourceFactory {
+
+    public static final String IDENTIFIER = "pushdown";
+
+    private static final ConfigOption<String> PARTITION_LIST = ConfigOptions.key("partition-list")
+            .stringType()
+            .defaultValue("");
+
+    @Override
+    public DynamicTableSource createDynamicTableSource(Context context) {
+        FactoryUtil.TableFactoryHelper helper = FactoryUtil.createTableFactoryHelper(this, context);
+        helper.validate();
+
+        List<Map<String, String>> partitionList = new ArrayList<>();
+        for (String partition : helper.getOptions().get(PARTITION_LIST).split(";")) {
+            if (!partition.isEmpty()) {
+                Map<String, String> partitionSpec = new HashMap<>();
+                for (String keyValue : partition.split(",")) {
+                    String[] pair = keyValue.split(":");
+                    partitionSpec.put(pair[0], pair[1]);
+                }
+                partitionList.add(partitionSpec);
+            }
+        }
+        return new PushdownTableSource(partitionList);
+    }
+
+    @Override
+    public String factoryIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public Set<ConfigOption<?>> requiredOptions() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<ConfigOption<?>> optionalOptions() {
+        return new HashSet<>(Collections.singletonList(PARTITION_LIST));
+    }
+
+    private static class PushdownTableSource implements ScanTableSource, SupportsFilterPushDown,
+            SupportsProjectionPushDown, SupportsPartitionPushDown {
+
+        private static final Set<FunctionDefinition> COMPARISONS = new HashSet<>(Arrays.asList(
+                BuiltInFunctionDefinitions.EQUALS,
+                BuiltInFunctionDefinitions.NOT_EQUALS,
+                BuiltInFunctionDefinitions.GREATER_THAN,
+                BuiltInFunctionDefinitions.GREATER_THAN_OR_EQUAL,
+                BuiltInFunctionDefinitions.LESS_THAN,
+                BuiltInFunctionDefinitions.LESS_THAN_OR_EQUAL));
+
+        private List<Map<String, String>> partitionList;
+
+        private PushdownTableSource(List<Map<String, String>> partitionList) {
+            this.partitionList = partitionList;
+        }
+
+        @Override
+        public Result applyFilters(List<ResolvedExpression> filters) {
+            List<ResolvedExpression> acceptedFilters = new ArrayList<>();
+            List<ResolvedExpression> remainingFilters = new ArrayList<>();
+            for (ResolvedExpression filter : filters) {
+                if (isColumnComparison(filter)) {
+                    acceptedFilters.add(filter);
+                } else {
+                    remainingFilters.add(filter);
+                }
+            }
+            return Result.of(acceptedFilters, remainingFilters);
+        }
+
+        private static boolean isColumnComparison(ResolvedExpression filter) {
+            if (!(filter instanceof CallExpression)
+                    || !COMPARISONS.contains(((CallExpression) filter).getFunctionDefinition())) {
+                return false;
+            }
+            return filter.getResolvedChildren()
+                    .stream()
+                    .allMatch(child -> child instanceof FieldReferenceExpression
+                            || child instanceof ValueLiteralExpression);
+        }
+
+        @Override
+        public boolean supportsNestedProjection() {
+            return false;
+        }
+
+        @Override
+        public void applyProjection(int[][] projectedFields, DataType producedDataType) {
+            // the projected fields are shown in the plan by the planner
+        }
+
+        @Override
+        public Optional<List<Map<String, String>>> listPartitions() {
+            return Optional.of(partitionList);
+        }
+
+        @Override
+        public void applyPartitions(List<Map<String, String>> remainingPartitions) {
+            this.partitionList = remainingPartitions;
+        }
+
+        @Override
+        public ChangelogMode getChangelogMode() {
+            return ChangelogMode.insertOnly();
+        }
+
+        @Override
+        public ScanRuntimeProvider getScanRuntimeProvider(ScanContext runtimeProviderContext) {
+            return SourceFunctionProvider.of(new EmptySourceFunction(), true);
+        }
+
+        @Override
+        public DynamicTableSource copy() {
+            return new PushdownTableSource(new ArrayList<>(partitionList));
+        }
+
+        @Override
+        public String asSummaryString() {
+            return IDENTIFIER;
+        }
+    }
+
+    private static class EmptySourceFunction implements SourceFunction<RowData> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void run(SourceContext<RowData> sourceContext) {
+            // the source is only explained
+        }
+
+        @Override
+        public void cancel() {
+            // nothing to cancel
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.pool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @description: AsyncRewriteExecutorTest
+ * @author: HamaWhite
+ */
+public class AsyncRewriteExecutorTest {
+
+    private final AsyncRewriteExecutor executor = new AsyncRewriteExecutor(1, 2);
+
+    private final CountDownLatch running = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        CompletableFuture<String> first = executor.submit(this::block);
+        running.await(1, TimeUnit.MINUTES);
+
+        CompletableFuture<String> second = executor.submit(() -> "second");
+        CompletableFuture<String> third = executor.submit(() -> "third");
+        assertThat(executor.getActiveCount()).isEqualTo(1);
+        assertThat(executor.getQueueDepth()).isEqualTo(2);
+
+        // the queue is full
+        CompletableFuture<String> rejected = executor.submit(() -> "rejected");
+        assertThatThrownBy(rejected::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.getRejectedCount()).isEqualTo(1L);
+
+        release.countDown();
+        assertThat(first.get(1, TimeUnit.MINUTES)).isEqualTo("first");
+        assertThat(second.get(1, TimeUnit.MINUTES)).isEqualTo("second");
+        assertThat(third.get(1, TimeUnit.MINUTES)).isEqualTo("third");
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        executor.submit(this::block);
+        running.await(1, TimeUnit.MINUTES);
+
+        CompletableFuture<String> waiting = executor.submit(() -> "waiting");
+        assertThat(executor.getQueueDepth()).isEqualTo(1);
+
+        // the cancelled rewrite leaves the queue at once
+        waiting.cancel(true);
+        assertThat(executor.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void testFailure() {
+        CompletableFuture<String> future = executor.submit(() -> {
+            throw new IllegalStateException("rewrite error");
+        });
+        assertThatThrownBy(() -> future.get(1, TimeUnit.MINUTES)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private String block() {
+        running.countDown();
+        try {
+            release.await(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "first";
+    }
+}
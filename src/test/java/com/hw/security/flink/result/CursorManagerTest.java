@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.result;
+
+import com.hw.security.flink.exception.CustomException;
+
+import org.apache.flink.types.Row;
+import org.apache.flink.util.CloseableIterator;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @description: CursorManagerTest
+ * @author: HamaWhite
+ */
+public class CursorManagerTest {
+
+    private static final int ROWS = 5;
+
+    private final CursorManager cursorManager = new CursorManager(2, Duration.ofMillis(200));
+
+    private final AtomicInteger cancelCount = new AtomicInteger();
+
+    @After
+    public void closeAll() {
+        cursorManager.closeAll();
+    }
+
+    @Test
+    public void testFetchNext() {
+        ResultCursor cursor = cursorManager.open(this::createIterator);
+        assertThat(cursorManager.get(cursor.getId())).isSameAs(cursor);
+
+        assertThat(cursor.fetchNext(2)).containsExactly(Row.of(0), Row.of(1));
+        assertThat(cursor.fetchNext(2)).containsExactly(Row.of(2), Row.of(3));
+        assertThat(cancelCount).hasValue(0);
+
+        // the last page closes the cursor
+        assertThat(cursor.fetchNext(2)).containsExactly(Row.of(4));
+        assertThat(cursor.isClosed()).isTrue();
+        assertThat(cursorManager.getOpenCount()).isZero();
+        assertThatThrownBy(() -> cursor.fetchNext(2)).isInstanceOf(CustomException.class)
+                .hasMessageContaining("is closed");
+    }
+
+    @Test
+    public void testMaxOpenCursors() {
+        ResultCursor first = cursorManager.open(this::createIterator);
+        cursorManager.open(this::createIterator);
+
+        // the job is not submitted when the limit is reached
+        AtomicInteger executeCount = new AtomicInteger();
+        assertThatThrownBy(() -> cursorManager.open(() -> {
+            executeCount.incrementAndGet();
+            return createIterator();
+        })).isInstanceOf(CustomException.class).hasMessageContaining("Too many open cursors");
+        assertThat(executeCount).hasValue(0);
+
+        first.close();
+        assertThat(cancelCount).hasValue(1);
+        assertThat(cursorManager.open(this::createIterator).fetchNext(1)).containsExactly(Row.of(0));
+    }
+
+    @Test
+    public void testIdleTimeout() throws InterruptedException {
+        ResultCursor cursor = cursorManager.open(this::createIterator);
+        cursor.fetchNext(1);
+
+        Thread.sleep(300);
+        cursorManager.expireIdleCursors();
+
+        assertThat(cursor.isClosed()).isTrue();
+        assertThat(cancelCount).hasValue(1);
+        assertThatThrownBy(() -> cursorManager.get(cursor.getId())).isInstanceOf(CustomException.class)
+                .hasMessageContaining("does not exist");
+    }
+
+    /**
+     * A fetch waiting for the rows of a silent job is cancelled, and does not block the expiry of the other cursors
+     */
+    @Test
+    public void testIdleTimeoutWhileFetching() throws Exception {
+        CountDownLatch waiting = new CountDownLatch(1);
+        ResultCursor fetchingCursor = cursorManager.open(() -> createBlockingIterator(waiting));
+        ResultCursor idleCursor = cursorManager.open(this::createIterator);
+
+        CompletableFuture<List<Row>> fetchFuture = CompletableFuture.supplyAsync(() -> fetchingCursor.fetchNext(1));
+        assertThat(waiting.await(1, TimeUnit.MINUTES)).isTrue();
+
+        Thread.sleep(300);
+        CompletableFuture.runAsync(cursorManager::expireIdleCursors).get(1, TimeUnit.MINUTES);
+
+        assertThat(fetchingCursor.isClosed()).isTrue();
+        assertThat(idleCursor.isClosed()).isTrue();
+        assertThat(cancelCount).hasValue(2);
+        assertThat(cursorManager.getOpenCount()).isZero();
+        assertThatThrownBy(() -> fetchFuture.get(1, TimeUnit.MINUTES)).hasCauseInstanceOf(CustomException.class)
+                .hasMessageContaining("is closed");
+    }
+
+    /**
+     * The cursor used after it was found idle is not closed
+     */
+    @Test
+    public void testCloseIfIdle() throws InterruptedException {
+        // the cursor is not expired by the background thread
+        CursorManager manager = new CursorManager(1, Duration.ofHours(1));
+        try {
+            ResultCursor cursor = manager.open(this::createIterator);
+
+            Thread.sleep(300);
+            assertThat(cursor.isIdle(System.currentTimeMillis(), 200)).isTrue();
+            cursor.fetchNext(1);
+
+            assertThat(cursor.closeIfIdle(200)).isFalse();
+            assertThat(cursor.fetchNext(1)).containsExactly(Row.of(1));
+
+            Thread.sleep(300);
+            assertThat(cursor.closeIfIdle(200)).isTrue();
+            assertThat(cursor.isClosed()).isTrue();
+            assertThat(manager.getOpenCount()).isZero();
+        } finally {
+            manager.closeAll();
+        }
+    }
+
+    private ResultIterator createIterator() {
+        List<Row> rowList = new ArrayList<>(ROWS);
+        for (int index = 0; index < ROWS; index++) {
+            rowList.add(Row.of(index));
+        }
+        return new ResultIterator(
+                CloseableIterator.adapterForIterator(rowList.iterator(), cancelCount::incrementAndGet));
+    }
+
+    /**
+     * The rows of a job that produces nothing, reading it blocks until it is closed
+     */
+    private ResultIterator createBlockingIterator(CountDownLatch waiting) {
+        CountDownLatch closed = new CountDownLatch(1);
+        Iterator<Row> rowIterator = new Iterator<Row>() {
+
+            @Override
+            public boolean hasNext() {
+                waiting.countDown();
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+
+            @Override
+            public Row next() {
+                throw new NoSuchElementException();
+            }
+        };
+        return new ResultIterator(CloseableIterator.adapterForIterator(rowIterator, () -> {
+            if (closed.getCount() > 0) {
+                cancelCount.incrementAndGet();
+                closed.countDown();
+            }
+        }));
+    }
+}
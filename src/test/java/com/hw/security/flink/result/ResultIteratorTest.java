@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.result;
+
+import org.apache.flink.types.Row;
+import org.apache.flink.util.CloseableIterator;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description: ResultIteratorTest
+ * @author: HamaWhite
+ */
+public class ResultIteratorTest {
+
+    private final List<Row> rowList = Arrays.asList(Row.of(1, "a"), Row.of(2, "b"), Row.of(3, "c"));
+
+    private final AtomicInteger closeCount = new AtomicInteger();
+
+    private final ResultIterator iterator = new ResultIterator(
+            CloseableIterator.adapterForIterator(rowList.iterator(), closeCount::incrementAndGet));
+
+    @Test
+    public void testCloseAfterLastRow() {
+        assertThat(iterator.next()).isEqualTo(Row.of(1, "a"));
+        assertThat(iterator.next()).isEqualTo(Row.of(2, "b"));
+        assertThat(iterator.next()).isEqualTo(Row.of(3, "c"));
+        assertThat(closeCount).hasValue(0);
+
+        assertThat(iterator.hasNext()).isFalse();
+        assertThat(iterator.isClosed()).isTrue();
+        assertThat(closeCount).hasValue(1);
+    }
+
+    @Test
+    public void testCloseFinishedJob() {
+        // the iterator of an insert cancels the job on close, which fails once the job has finished
+        ResultIterator insertIterator = new ResultIterator(CloseableIterator.adapterForIterator(
+                Arrays.asList(Row.of(-1L)).iterator(), () -> {
+                    throw new IllegalStateException("MiniCluster is not yet running or has already been shut down.");
+                }));
+
+        assertThat(insertIterator.next()).isEqualTo(Row.of(-1L));
+        assertThat(insertIterator.hasNext()).isFalse();
+        assertThat(insertIterator.isClosed()).isTrue();
+    }
+
+    @Test
+    public void testCloseBeforeLastRow() {
+        assertThat(iterator.next()).isEqualTo(Row.of(1, "a"));
+
+        // the job is cancelled once, and no more rows are pulled
+        iterator.close();
+        iterator.close();
+        assertThat(closeCount).hasValue(1);
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test
+    public void testStream() {
+        try (Stream<Row> stream = iterator.stream()) {
+            assertThat(stream.limit(2).collect(Collectors.toList())).containsExactly(Row.of(1, "a"), Row.of(2, "b"));
+        }
+        assertThat(closeCount).hasValue(1);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.rewrite;
+
+import com.hw.security.flink.basic.AbstractBasicTest;
+import com.hw.security.flink.enums.RewriteMode;
+import com.hw.security.flink.model.RewriteResult;
+
+import org.apache.flink.table.api.ValidationException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rewrite a batch of statements in parallel.
+ *
+ * @author: HamaWhite
+ */
+public class BatchRewriteTest extends AbstractBasicTest {
+
+    private static final int STATEMENTS = 16;
+
+    @BeforeClass
+    public static void init() {
+        // create mysql cdc table orders
+        createTableOfOrders();
+
+        // create mysql cdc table products
+        createTableOfProducts();
+
+        // add row filter and data mask policies
+        policyManager.addPolicy(rowFilterPolicy(USER_A, TABLE_ORDERS, "region = 'beijing'"));
+        policyManager.addPolicy(dataMaskPolicy(USER_A, TABLE_PRODUCTS, "name", "MASK_SHOW_LAST_4"));
+    }
+
+    /**
+     * The results are in the order of the statements, and an invalid statement only fails itself
+     */
+    @Test
+    public void testRewriteBatch() {
+        List<String> sqlList = new ArrayList<>(STATEMENTS + 1);
+        for (int index = 0; index < STATEMENTS; index++) {
+            sqlList.add(buildSql(index));
+        }
+        sqlList.add(STATEMENTS / 2, "SELECT not_exist FROM orders");
+
+        List<RewriteResult> resultList = securityContext.rewriteBatch(USER_A, sqlList, RewriteMode.MIXED);
+
+        assertThat(resultList).hasSize(sqlList.size());
+        for (int index = 0; index < sqlList.size(); index++) {
+            RewriteResult result = resultList.get(index);
+            assertThat(result.getOriginSql()).isEqualTo(sqlList.get(index));
+            if (index == STATEMENTS / 2) {
+                assertThat(result.isSuccess()).isFalse();
+                assertThat(result.getError()).isInstanceOf(ValidationException.class);
+            } else {
+                assertThat(result.isSuccess()).isTrue();
+                assertThat(result.getRewriteSql()).isEqualTo(securityContext.mixedRewrite(USER_A, sqlList.get(index)));
+            }
+        }
+    }
+
+    /**
+     * The statements of a user without any policy are returned unchanged
+     */
+    @Test
+    public void testRewriteBatchWithoutPolicy() {
+        List<String> sqlList = new ArrayList<>(STATEMENTS);
+        for (int index = 0; index < STATEMENTS; index++) {
+            sqlList.add(buildSql(index));
+        }
+
+        assertThat(securityContext.rewriteBatch("user_C", sqlList, RewriteMode.MIXED))
+                .extracting(RewriteResult::getRewriteSql)
+                .isEqualTo(sqlList);
+    }
+
+    private String buildSql(int index) {
+        return "SELECT o.order_id, o.customer_name, p.name FROM orders AS o LEFT JOIN products AS p "
+                + "ON o.product_id = p.id WHERE o.price > " + index;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.rewrite;
+
+import com.hw.security.flink.basic.AbstractBasicTest;
+
+import org.apache.flink.table.functions.ScalarFunction;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rewrite SQL from many threads with the same security context.
+ *
+ * @author: HamaWhite
+ */
+public class ConcurrentRewriteTest extends AbstractBasicTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrentRewriteTest.class);
+
+    private static final int THREADS = 8;
+
+    private static final int STATEMENTS_PER_THREAD = 8;
+
+    @BeforeClass
+    public static void init() {
+        // create mysql cdc table orders
+        createTableOfOrders();
+
+        // create mysql cdc table products
+        createTableOfProducts();
+
+        // add row filter and data mask policies
+        policyManager.addPolicy(rowFilterPolicy(USER_A, TABLE_ORDERS, "region = 'beijing'"));
+        policyManager.addPolicy(dataMaskPolicy(USER_A, TABLE_PRODUCTS, "name", "MASK_SHOW_LAST_4"));
+    }
+
+    /**
+     * Each statement is distinct so that it is really rewritten rather than served from the rewrite cache, and the
+     * concurrent results must be the same as the serial ones.
+     */
+    @Test
+    public void testConcurrentMixedRewrite() throws Exception {
+        List<String> expectedList = new ArrayList<>(THREADS * STATEMENTS_PER_THREAD);
+        for (int index = 0; index < THREADS * STATEMENTS_PER_THREAD; index++) {
+            expectedList.add(securityContext.mixedRewrite(USER_A, buildSql(index)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> futureList = new ArrayList<>(THREADS);
+            long start = System.nanoTime();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int offset = thread * STATEMENTS_PER_THREAD;
+                futureList.add(executor.submit(() -> {
+                    List<String> resultList = new ArrayList<>(STATEMENTS_PER_THREAD);
+                    for (int index = offset; index < offset + STATEMENTS_PER_THREAD; index++) {
+                        // the lower case keyword makes a cache miss, while the rewritten SQL stays the same
+                        String sql = buildSql(index).replace("SELECT", "select");
+                        resultList.add(securityContext.mixedRewrite(USER_A, sql));
+                    }
+                    return resultList;
+                }));
+            }
+
+            List<String> actualList = new ArrayList<>(THREADS * STATEMENTS_PER_THREAD);
+            for (Future<List<String>> future : futureList) {
+                actualList.addAll(future.get(5, TimeUnit.MINUTES));
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            LOG.info("{} threads rewrote {} statements in {} ms", THREADS, actualList.size(), elapsedMillis);
+
+            assertThat(actualList).isEqualTo(expectedList);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The asynchronous rewrites return the same results as the serial ones
+     */
+    @Test
+    public void testAsyncMixedRewrite() throws Exception {
+        List<String> expectedList = new ArrayList<>(THREADS * STATEMENTS_PER_THREAD);
+        List<CompletableFuture<String>> futureList = new ArrayList<>(THREADS * STATEMENTS_PER_THREAD);
+        for (int index = 0; index < THREADS * STATEMENTS_PER_THREAD; index++) {
+            expectedList.add(securityContext.mixedRewrite(USER_A, buildSql(index)));
+            // the lower case keyword makes a cache miss, while the rewritten SQL stays the same
+            futureList.add(securityContext.mixedRewriteAsync(USER_A, buildSql(index).replace("SELECT", "Select")));
+        }
+
+        List<String> actualList = new ArrayList<>(futureList.size());
+        for (CompletableFuture<String> future : futureList) {
+            actualList.add(future.get(5, TimeUnit.MINUTES));
+        }
+        assertThat(actualList).isEqualTo(expectedList);
+        assertThat(securityContext.getAsyncRewriteRejectedCount()).isZero();
+    }
+
+    /**
+     * A query being planned only holds the read lock of the catalogs, so the rewrites are not blocked by it
+     */
+    @Test
+    public void testRewriteWhileExecuting() throws Exception {
+        securityContext.execute(String.format("CREATE TEMPORARY SYSTEM FUNCTION %s AS '%s'",
+                BlockingFunction.NAME, BlockingFunction.class.getName()));
+
+        // the planner evaluates the function on a literal, which blocks the execution until the rewrite is done
+        CompletableFuture<String> rewriteFuture = CompletableFuture.supplyAsync(() -> {
+            try {
+                if (!BlockingFunction.ENTERED.await(5, TimeUnit.MINUTES)) {
+                    throw new IllegalStateException("The query is not executed");
+                }
+                return securityContext.mixedRewrite(USER_A, buildSql(1000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                BlockingFunction.RELEASED.countDown();
+            }
+        });
+
+        // the planner of the table environment can only be used by the thread that created it
+        securityContext.execute(String.format("SELECT %s(1)", BlockingFunction.NAME));
+        assertThat(rewriteFuture.get(1, TimeUnit.MINUTES)).contains("'beijing'");
+        assertThat(BlockingFunction.TIMEOUT.get()).isFalse();
+    }
+
+    private String buildSql(int index) {
+        return "SELECT o.order_id, o.customer_name, p.name FROM orders AS o LEFT JOIN products AS p "
+                + "ON o.product_id = p.id WHERE o.price > " + index;
+    }
+
+    /**
+     * Block the thread evaluating it until released
+     */
+    public static class BlockingFunction extends ScalarFunction {
+
+        private static final long serialVersionUID = 1L;
+
+        public static final String NAME = "block_until_released";
+
+        private static final CountDownLatch ENTERED = new CountDownLatch(1);
+
+        private static final CountDownLatch RELEASED = new CountDownLatch(1);
+
+        private static final AtomicBoolean TIMEOUT = new AtomicBoolean();
+
+        public Integer eval(Integer value) throws InterruptedException {
+            ENTERED.countDown();
+            // the rewrite waiting for the execution would never release it
+            if (!RELEASED.await(30, TimeUnit.SECONDS)) {
+                TIMEOUT.set(true);
+            }
+            return value;
+        }
+    }
+}
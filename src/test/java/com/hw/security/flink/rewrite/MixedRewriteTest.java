@@ -63,11 +63,8 @@ public class MixedRewriteTest extends AbstractBasicTest {
                 "FROM (                                     " +
                 "       SELECT                              " +
                 "               order_id                   ," +
-                "               order_date                 ," +
                 "               CAST(mask(customer_name) AS STRING) AS customer_name ," +
                 "               product_id                 ," +
-                "               price                      ," +
-                "               order_status               ," +
                 "               region                      " +
                 "       FROM                                " +
                 "                hive.default.orders        " +
@@ -108,11 +105,8 @@ public class MixedRewriteTest extends AbstractBasicTest {
                 "FROM (                                     " +
                 "       SELECT                              " +
                 "               order_id                   ," +
-                "               order_date                 ," +
                 "               CAST(mask(customer_name) AS STRING) AS customer_name ," +
                 "               product_id                 ," +
-                "               price                      ," +
-                "               order_status               ," +
                 "               region                      " +
                 "       FROM                                " +
                 "               hive.default.orders         " +
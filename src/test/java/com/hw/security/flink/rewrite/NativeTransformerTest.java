@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.rewrite;
+
+import com.hw.security.flink.SecurityContext;
+import com.hw.security.flink.basic.AbstractBasicTest;
+import com.hw.security.flink.config.SecurityOptions;
+import com.hw.security.flink.function.MaskFunction;
+import com.hw.security.flink.function.MaskHashFunction;
+import com.hw.security.flink.function.MaskShowFirstNFunction;
+import com.hw.security.flink.function.MaskShowLastNFunction;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.api.EnvironmentSettings;
+import org.apache.flink.table.api.TableEnvironment;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.CollectionUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rewrite the data mask with the native transformers, which are built from the built-in functions of Flink.
+ *
+ * @author: HamaWhite
+ */
+public class NativeTransformerTest extends AbstractBasicTest {
+
+    private static final List<String> MASK_TYPES = Arrays.asList("MASK", "MASK_SHOW_LAST_4", "MASK_SHOW_FIRST_4",
+            "MASK_HASH");
+
+    private static SecurityContext nativeContext;
+
+    @BeforeClass
+    public static void init() {
+        // create mysql cdc table orders
+        createTableOfOrders();
+
+        // add data mask policies, order_id is not a string, so it is still masked by the mask function
+        policyManager.addPolicy(dataMaskPolicy(USER_A, TABLE_ORDERS, "customer_name", "MASK_SHOW_LAST_4"));
+        policyManager.addPolicy(dataMaskPolicy(USER_A, TABLE_ORDERS, "order_id", "MASK"));
+
+        Configuration configuration = new Configuration();
+        configuration.set(SecurityOptions.REWRITE_ONLY, true);
+        configuration.set(SecurityOptions.DATA_MASK_NATIVE_TRANSFORMER, true);
+        nativeContext = new SecurityContext(policyManager, configuration);
+        nativeContext.useCatalog(hiveCatalog);
+    }
+
+    @AfterClass
+    public static void closeContext() {
+        nativeContext.close();
+    }
+
+    @Test
+    public void testRewrite() {
+        String sql = "SELECT order_id, customer_name FROM orders";
+
+        String expected = "SELECT                   " +
+                "       orders.order_id            ," +
+                "       orders.customer_name        " +
+                "FROM (                             " +
+                "       SELECT                      " +
+                "               CAST(mask(order_id) AS INTEGER) AS order_id ," +
+                "               CAST(CASE WHEN CHAR_LENGTH(customer_name) <= 4 THEN customer_name " +
+                "                    ELSE CONCAT(REGEXP_REPLACE(SUBSTRING(customer_name FROM 1 FOR " +
+                "                    CHAR_LENGTH(customer_name) - 4), '[\\p{Lu}\\p{Ll}\\p{Nd}]', 'x'), " +
+                "                    SUBSTRING(customer_name FROM CHAR_LENGTH(customer_name) - 3)) END " +
+                "                    AS STRING) AS customer_name " +
+                "       FROM                        " +
+                "               hive.default.orders " +
+                "     ) AS orders                   ";
+
+        assertRewriteResult(sql, expected, nativeContext.rewriteDataMask(USER_A, sql));
+    }
+
+    /**
+     * The native transformers return the same strings as the mask functions
+     */
+    @Test
+    public void testSameResult() throws Exception {
+        TableEnvironment tableEnv = TableEnvironment.create(EnvironmentSettings.inBatchMode());
+        tableEnv.createTemporarySystemFunction(MaskFunction.NAME, MaskFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskShowLastNFunction.NAME, MaskShowLastNFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskShowFirstNFunction.NAME, MaskShowFirstNFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskHashFunction.NAME, MaskHashFunction.class);
+
+        String selectList = MASK_TYPES.stream()
+                .map(policyManager::getDataMaskType)
+                .flatMap(type -> Arrays.asList(type.getTransformer(), type.getNativeTransformer()).stream())
+                .map(transformer -> transformer.replace("{col}", "val"))
+                .collect(Collectors.joining(", "));
+        String sql = String.format("SELECT %s FROM (VALUES ('a'), ('Abcd'), ('Hello World-2023'), ('13912345678'), "
+                + "('ÀÉÎõü 99'), ('张三丰 Zhang'), (CAST(NULL AS STRING))) AS t(val)", selectList);
+
+        int rowCount = 0;
+        try (CloseableIterator<Row> iterator = tableEnv.executeSql(sql).collect()) {
+            while (iterator.hasNext()) {
+                Row row = iterator.next();
+                for (int index = 0; index < MASK_TYPES.size(); index++) {
+                    assertThat(row.getField(index * 2 + 1)).as(MASK_TYPES.get(index))
+                            .isEqualTo(row.getField(index * 2));
+                }
+                rowCount++;
+            }
+        }
+        assertThat(rowCount).isEqualTo(7);
+    }
+
+    /**
+     * The native transformers count the characters in code points, the mask functions in UTF-16 code units like Hive,
+     * so they differ for the strings with supplementary characters
+     */
+    @Test
+    public void testSupplementaryCharacters() {
+        TableEnvironment tableEnv = TableEnvironment.create(EnvironmentSettings.inBatchMode());
+        tableEnv.createTemporarySystemFunction(MaskShowLastNFunction.NAME, MaskShowLastNFunction.class);
+        tableEnv.createTemporarySystemFunction(MaskShowFirstNFunction.NAME, MaskShowFirstNFunction.class);
+
+        String selectList = Stream.of("MASK_SHOW_LAST_4", "MASK_SHOW_FIRST_4")
+                .map(policyManager::getDataMaskType)
+                .flatMap(type -> Stream.of(type.getTransformer(), type.getNativeTransformer()))
+                .map(transformer -> transformer.replace("{col}", "val"))
+                .collect(Collectors.joining(", "));
+        // each emoji is one code point, but two UTF-16 code units
+        String sql = String.format("SELECT %s FROM (VALUES ('abcd\uD83D\uDE00'), ('\uD83D\uDE00\uD83D\uDE00ab')) "
+                + "AS t(val)", selectList);
+
+        List<Row> rowList = CollectionUtil.iteratorToList(tableEnv.executeSql(sql).collect());
+        assertThat(rowList).containsExactly(
+                Row.of("xxcd\uD83D\uDE00", "xbcd\uD83D\uDE00", "abcd\uD83D\uDE00", "abcd\uD83D\uDE00"),
+                Row.of("\uD83D\uDE00\uD83D\uDE00ab", "\uD83D\uDE00\uD83D\uDE00ab",
+                        "\uD83D\uDE00\uD83D\uDE00xx", "\uD83D\uDE00\uD83D\uDE00ab"));
+    }
+}
@@ -66,11 +66,8 @@ public class RewriteDataMaskTest extends AbstractBasicTest {
                 "FROM (                             " +
                 "       SELECT                      " +
                 "               order_id           ," +
-                "               order_date         ," +
                 "               CAST(mask(customer_name) AS STRING) AS customer_name ," +
                 "               product_id         ," +
-                "               price              ," +
-                "               order_status       ," +
                 "               region              " +
                 "       FROM                        " +
                 "               hive.default.orders " +
@@ -95,11 +92,8 @@ public class RewriteDataMaskTest extends AbstractBasicTest {
                 "FROM (                             " +
                 "       SELECT                      " +
                 "               order_id           ," +
-                "               order_date         ," +
                 "               CAST(mask(customer_name) AS STRING) AS customer_name ," +
                 "               product_id         ," +
-                "               price              ," +
-                "               order_status       ," +
                 "               region              " +
                 "       FROM                        " +
                 "               hive.default.orders " +
@@ -108,6 +102,43 @@ public class RewriteDataMaskTest extends AbstractBasicTest {
         rewriteDataMask(USER_A, sql, expected);
     }
 
+    /**
+     * The masked column is not referenced, so the table is not replaced by a masking sub-query
+     */
+    @Test
+    public void testSelectWithoutMaskedColumn() {
+        String sql = "SELECT order_id, region FROM orders";
+
+        String expected = "SELECT                   " +
+                "       orders.order_id            ," +
+                "       orders.region               " +
+                "FROM                               " +
+                "       hive.default.orders AS orders ";
+
+        rewriteDataMask(USER_A, sql, expected);
+    }
+
+    /**
+     * The masking sub-query only reads the column referenced by the where clause
+     */
+    @Test
+    public void testCount() {
+        String sql = "SELECT COUNT(*) FROM orders WHERE customer_name = 'John'";
+
+        String expected = "SELECT                   " +
+                "       COUNT(*)                    " +
+                "FROM (                             " +
+                "       SELECT                      " +
+                "               CAST(mask(customer_name) AS STRING) AS customer_name " +
+                "       FROM                        " +
+                "               hive.default.orders " +
+                "     ) AS orders                   " +
+                "WHERE                              " +
+                "       orders.customer_name = 'John' ";
+
+        rewriteDataMask(USER_A, sql, expected);
+    }
+
     /**
      * Different users configure different policies
      */
@@ -123,11 +154,8 @@ public class RewriteDataMaskTest extends AbstractBasicTest {
                 "FROM (                             " +
                 "       SELECT                      " +
                 "               order_id           ," +
-                "               order_date         ," +
                 "               CAST(mask(customer_name) AS STRING) AS customer_name ," +
                 "               product_id         ," +
-                "               price              ," +
-                "               order_status       ," +
                 "               region              " +
                 "       FROM                        " +
                 "               hive.default.orders " +
@@ -141,12 +169,9 @@ public class RewriteDataMaskTest extends AbstractBasicTest {
                 "FROM (                              " +
                 "       SELECT                       " +
                 "               order_id            ," +
-                "               order_date          ," +
                 "               CAST(mask_show_first_n(customer_name, 4, 'x', 'x', 'x', -1, '1') AS STRING) " +
                 "                       AS customer_name                                                   ," +
                 "               product_id          ," +
-                "               price               ," +
-                "               order_status        ," +
                 "               region               " +
                 "       FROM                         " +
                 "               hive.default.orders  " +
@@ -186,11 +211,8 @@ public class RewriteDataMaskTest extends AbstractBasicTest {
                 "FROM (                                 " +
                 "       SELECT                          " +
                 "               order_id               ," +
-                "               order_date             ," +
                 "               CAST(mask(customer_name) AS STRING) AS customer_name ," +
                 "               product_id             ," +
-                "               price                  ," +
-                "               order_status           ," +
                 "               region                  " +
                 "       FROM                            " +
                 "               hive.default.orders     " +
@@ -257,7 +279,6 @@ public class RewriteDataMaskTest extends AbstractBasicTest {
                 "       FROM (                                  " +
                 "               SELECT                          " +
                 "                       order_id               ," +
-                "                       order_date             ," +
                 "                       CAST(mask(customer_name) AS STRING) AS customer_name ," +
                 "                       product_id             ," +
                 "                       price                  ," +
@@ -328,11 +349,8 @@ public class RewriteDataMaskTest extends AbstractBasicTest {
                 "FROM (                                 " +
                 "       SELECT                          " +
                 "               order_id               ," +
-                "               order_date             ," +
                 "               CAST(mask(customer_name) AS STRING) AS customer_name ," +
                 "               product_id             ," +
-                "               price                  ," +
-                "               order_status           ," +
                 "               region                  " +
                 "       FROM                            " +
                 "           hive.default.orders         " +
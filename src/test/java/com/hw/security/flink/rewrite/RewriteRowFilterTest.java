@@ -101,6 +101,59 @@ public class RewriteRowFilterTest extends AbstractBasicTest {
         rewriteRowFilter(USER_B, sql, expectedUserB);
     }
 
+    /**
+     * No policy applies to the tables, the sql is returned unchanged without validation
+     */
+    @Test
+    public void testSelectWithoutPolicy() {
+        String sql = "SELECT id, name, description FROM products";
+
+        // user_B has policies, but not on the table products
+        rewriteRowFilter(USER_B, sql, sql);
+
+        // user_C has no policy at all
+        rewriteRowFilter("user_C", sql, sql);
+    }
+
+    /**
+     * Every column in the row-level filter condition is qualified with the table alias
+     */
+    @Test
+    public void testSelectWithComplexCondition() {
+        RowFilterPolicy policy =
+                rowFilterPolicy(USER_A, TABLE_PRODUCTS, "name = 'hammer' OR UPPER(description) LIKE '%HAMMER%'");
+        // add policy
+        policyManager.addPolicy(policy);
+
+        String sql = "SELECT id, name FROM products AS p";
+
+        String expected = "SELECT                                                     " +
+                "       p.id                                                         ," +
+                "       p.name                                                        " +
+                "FROM                                                                 " +
+                "       hive.default.products AS p                                    " +
+                "WHERE                                                                " +
+                "       p.name = 'hammer' OR UPPER(p.description) LIKE '%HAMMER%'     ";
+
+        rewriteRowFilter(USER_A, sql, expected);
+
+        // the compiled condition is not modified by the previous rewrite
+        sql = "SELECT id, name FROM products AS t";
+
+        expected = "SELECT                                                            " +
+                "       t.id                                                         ," +
+                "       t.name                                                        " +
+                "FROM                                                                 " +
+                "       hive.default.products AS t                                    " +
+                "WHERE                                                                " +
+                "       t.name = 'hammer' OR UPPER(t.description) LIKE '%HAMMER%'     ";
+
+        rewriteRowFilter(USER_A, sql, expected);
+
+        // remove policy
+        policyManager.removePolicy(policy);
+    }
+
     /**
      * Where there is a condition
      */
@@ -153,6 +206,91 @@ public class RewriteRowFilterTest extends AbstractBasicTest {
         rewriteRowFilter(USER_A, sql, expected);
     }
 
+    /**
+     * Both the where clause and the row-level filter condition are OR conditions, each of them keeps its parentheses
+     */
+    @Test
+    public void testSelectComplexWhereWithComplexCondition() {
+        String username = "user_D";
+        RowFilterPolicy policy =
+                rowFilterPolicy(username, TABLE_ORDERS, "region = 'beijing' OR region = 'hangzhou'");
+        // add policy
+        policyManager.addPolicy(policy);
+
+        String sql = "SELECT                                " +
+                "       order_id                           ," +
+                "       customer_name                       " +
+                "FROM                                       " +
+                "       orders                              " +
+                "WHERE                                      " +
+                "       price > 45.0                        " +
+                "       OR customer_name = 'John'           ";
+
+        String expected = "SELECT                                                       " +
+                "       orders.order_id                                                ," +
+                "       orders.customer_name                                            " +
+                "FROM                                                                   " +
+                "       hive.default.orders AS orders                                   " +
+                "WHERE                                                                  " +
+                "       (orders.price > 45.0 OR orders.customer_name = 'John')          " +
+                "       AND (orders.region = 'beijing' OR orders.region = 'hangzhou')   ";
+
+        rewriteRowFilter(username, sql, expected);
+
+        // the conditions also keep their parentheses in a sub-query
+        sql = "SELECT order_id FROM (SELECT order_id, region FROM orders WHERE price > 45.0 OR " +
+                "customer_name = 'John') AS t WHERE order_id > 10 OR region = 'shanghai'";
+
+        expected = "SELECT                                                              " +
+                "       t.order_id                                                            " +
+                "FROM (                                                                       " +
+                "       SELECT                                                                " +
+                "               orders.order_id                                              ," +
+                "               orders.region                                                 " +
+                "       FROM                                                                  " +
+                "               hive.default.orders AS orders                                 " +
+                "       WHERE                                                                 " +
+                "               (orders.price > 45.0 OR orders.customer_name = 'John')        " +
+                "               AND (orders.region = 'beijing' OR orders.region = 'hangzhou') " +
+                "     ) AS t                                                                  " +
+                "WHERE                                                                        " +
+                "       t.order_id > 10 OR t.region = 'shanghai'                              ";
+
+        rewriteRowFilter(username, sql, expected);
+
+        // remove policy
+        policyManager.removePolicy(policy);
+    }
+
+    /**
+     * The niladic functions in the condition are not qualified with the table alias, and the rewritten SQL is valid
+     */
+    @Test
+    public void testSelectWithNiladicFunctionCondition() {
+        String username = "user_E";
+        RowFilterPolicy policy = rowFilterPolicy(username, TABLE_ORDERS,
+                "CAST(order_date AS DATE) <= CURRENT_DATE AND order_date <= CAST(CURRENT_TIMESTAMP AS TIMESTAMP(0))");
+        // add policy
+        policyManager.addPolicy(policy);
+
+        String sql = "SELECT order_id FROM orders WHERE price > 45.0";
+
+        String expected = "SELECT                                                     " +
+                "       orders.order_id                                               " +
+                "FROM                                                                 " +
+                "       hive.default.orders AS orders                                 " +
+                "WHERE                                                                " +
+                "       orders.price > 45.0                                           " +
+                "       AND (CAST(orders.order_date AS DATE) <= CURRENT_DATE          " +
+                "       AND orders.order_date <= CAST(CURRENT_TIMESTAMP AS TIMESTAMP(0)))";
+
+        rewriteRowFilter(username, sql, expected);
+        securityContext.execute("EXPLAIN " + securityContext.rewriteRowFilter(username, sql));
+
+        // remove policy
+        policyManager.removePolicy(policy);
+    }
+
     /**
      * With group by clause
      */
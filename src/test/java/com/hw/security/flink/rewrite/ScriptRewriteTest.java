@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.security.flink.rewrite;
+
+import com.hw.security.flink.basic.AbstractBasicTest;
+import com.hw.security.flink.enums.RewriteMode;
+
+import org.apache.flink.table.api.ValidationException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Rewrite a script of statements separated by ';'
+ *
+ * @author: HamaWhite
+ */
+public class ScriptRewriteTest extends AbstractBasicTest {
+
+    @BeforeClass
+    public static void init() {
+        // create mysql cdc table orders
+        createTableOfOrders();
+
+        // add row filter policy
+        policyManager.addPolicy(rowFilterPolicy(USER_A, TABLE_ORDERS, "region = 'beijing'"));
+    }
+
+    /**
+     * The view created by the script is rewritten, and the later query using it can be validated
+     */
+    @Test
+    public void testRewriteScript() {
+        String script = "SET 'table.local-time-zone' = 'Asia/Shanghai';\n"
+                + "CREATE VIEW script_orders AS SELECT order_id, customer_name, region FROM orders;\n"
+                + "SELECT * FROM script_orders WHERE order_id > 10;\n"
+                + "SELECT order_id FROM orders";
+
+        String rewriteScript = securityContext.rewriteScript(USER_A, script, RewriteMode.ROW_FILTER);
+
+        String[] statements = rewriteScript.split(";\n");
+        assertThat(statements).hasSize(4);
+        assertThat(statements[0]).contains("SET");
+        assertThat(statements[1]).startsWith("CREATE VIEW").contains("'beijing'");
+        assertThat(statements[2]).doesNotContain("'beijing'");
+        assertThat(statements[3]).isEqualTo(securityContext.rewriteRowFilter(USER_A, "SELECT order_id FROM orders"));
+
+        // the view registered while rewriting is dropped
+        String sql = "SELECT o.order_id FROM orders AS o JOIN script_orders AS s ON o.order_id = s.order_id";
+        assertThatThrownBy(() -> securityContext.rewriteRowFilter(USER_A, sql))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("script_orders");
+    }
+
+    /**
+     * A one-statement script and the same single statement are formatted differently, and are cached separately
+     */
+    @Test
+    public void testRewriteScriptAndSingleStatement() {
+        String sql = "SELECT order_id, customer_name FROM orders WHERE order_id > 20";
+
+        String rewriteScript = securityContext.rewriteScript(USER_A, sql, RewriteMode.ROW_FILTER);
+        String rewriteSql = securityContext.rewriteRowFilter(USER_A, sql);
+        assertThat(rewriteScript).isEqualTo(rewriteSql + ";\n");
+
+        // in the reverse order, both are returned from the cache
+        assertThat(securityContext.rewriteRowFilter(USER_A, sql)).isEqualTo(rewriteSql);
+        assertThat(securityContext.rewriteScript(USER_A, sql, RewriteMode.ROW_FILTER)).isEqualTo(rewriteScript);
+    }
+
+    /**
+     * The script of a user without any policy is returned unchanged
+     */
+    @Test
+    public void testRewriteScriptWithoutPolicy() {
+        String script = "SELECT * FROM orders; SELECT order_id FROM orders";
+
+        assertThat(securityContext.rewriteScript("user_C", script, RewriteMode.MIXED)).isEqualTo(script);
+    }
+
+    /**
+     * The USE statements would change the tables that the later statements refer to
+     */
+    @Test
+    public void testRewriteScriptWithUse() {
+        String script = "USE CATALOG hive; SELECT * FROM orders";
+
+        assertThatThrownBy(() -> securityContext.rewriteScript(USER_A, script, RewriteMode.ROW_FILTER))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("USE statement is not supported");
+    }
+}